@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import se.sics.ktoolbox.examples.channel.LoadConfig.Affinity;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.Wiring;
+
+/**
+ * One ping-pong in flight per A-B pair under the default kompics scheduler
+ * and under the {@code AffinityScheduler}, with each pair pinned to one
+ * worker, with and without inline delivery. One operation is one round trip,
+ * reported as average time so the scheduling hand-off shows up as latency.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar AffinityBenchmark}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AffinityBenchmark extends RoundTripBenchmark {
+
+    @Param({"NONE", "PINNED", "INLINE"})
+    public Affinity affinity;
+    @Param({"1", "4"})
+    public int pairs;
+    @Param({"1"})
+    public int window;
+    @Param({"4"})
+    public int workers;
+    @Param({"20"})
+    public int throughput;
+
+    @Override
+    protected void start(RoundTripCounter counter) {
+        PingPongLauncher.start(pairs, window, Wiring.FILTERED, counter, affinity, workers, throughput);
+    }
+}
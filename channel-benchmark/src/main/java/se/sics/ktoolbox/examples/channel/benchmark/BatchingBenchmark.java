@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.PingPongInit;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.Wiring;
+
+/**
+ * Many ping-pongs in flight per A-B pair, over filtered channels and over
+ * {@code ComponentHelper.connectCoalescing} channels that merge them into
+ * batches. One operation is one round trip, i.e. two single events crossing.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar BatchingBenchmark}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class BatchingBenchmark extends RoundTripBenchmark {
+
+    @Param({"FILTERED", "COALESCING"})
+    public Wiring wiring;
+    @Param({"1", "16", "256"})
+    public int window;
+    @Param({"4"})
+    public int pairs;
+    @Param({"4"})
+    public int workers;
+    @Param({"20"})
+    public int throughput;
+
+    @Override
+    protected void start(RoundTripCounter counter) {
+        PingPongLauncher.start(new PingPongInit(pairs, window, wiring, counter), workers, throughput);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.PingPongInit;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.Wiring;
+
+/**
+ * X/Y round trips over channels built with {@code ComponentHelper.connect} and
+ * {@code IdExtractor} filters, against plain unfiltered connects. One operation
+ * is one round trip, i.e. two channel hops.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar ChannelFilterBenchmark}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class ChannelFilterBenchmark extends RoundTripBenchmark {
+
+    @Param({"PLAIN", "FILTERED"})
+    public Wiring wiring;
+    @Param({"1", "4"})
+    public int pairs;
+    @Param({"1", "2", "4"})
+    public int workers;
+    /**
+     * events a component executes per scheduling, hard-coded as 20 in
+     * {@code Launcher.start()}
+     */
+    @Param({"1", "20", "100"})
+    public int throughput;
+
+    @Override
+    protected void start(RoundTripCounter counter) {
+        PingPongLauncher.start(new PingPongInit(pairs, 1, wiring, counter), workers, throughput);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import se.sics.kompics.Component;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Init;
+import se.sics.kompics.Kompics;
+import se.sics.kompics.Positive;
+import se.sics.ktoolbox.examples.channel.AComp;
+import se.sics.ktoolbox.examples.channel.AComp.AInit;
+import se.sics.ktoolbox.examples.channel.BComp;
+import se.sics.ktoolbox.examples.channel.BComp.BInit;
+import se.sics.ktoolbox.examples.channel.ComponentHelper;
+import se.sics.ktoolbox.examples.channel.IdExtractor;
+import se.sics.ktoolbox.examples.channel.KeyedRouter;
+import se.sics.ktoolbox.examples.channel.RoundTripListener;
+import se.sics.ktoolbox.examples.channel.XEvent;
+import se.sics.ktoolbox.examples.channel.XYPort;
+
+/**
+ * One A whose port fans out to {@code channels} Bs, B i being keyed on x id
+ * 2i. The A wraps its x ids over the key space, so every x reaches exactly one
+ * B and every B answers straight back on an unfiltered side.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class FanOutLauncher extends ComponentDefinition {
+
+    public FanOutLauncher(FanOutInit init) {
+        int wrapId = 2 * (init.channels - 1);
+        Component a = create(AComp.class, new AInit(0, wrapId, 1, init.listener, null, null));
+        Positive<XYPort> aPort = a.getPositive(XYPort.class);
+        KeyedRouter<XYPort> router = init.keyed ? ComponentHelper.keyedRouter(aPort) : null;
+        for (int i = 0; i < init.channels; i++) {
+            Component b = create(BComp.class, new BInit(2 * i + 1));
+            IdExtractor xFilter = new IdExtractor(2 * i, true, XEvent.class);
+            if (init.keyed) {
+                ComponentHelper.connect(router, xFilter, b.getNegative(XYPort.class), null);
+            } else {
+                ComponentHelper.connect(aPort, xFilter, b.getNegative(XYPort.class), null);
+            }
+        }
+    }
+
+    public static class FanOutInit extends Init<FanOutLauncher> {
+
+        public final int channels;
+        public final boolean keyed;
+        public final RoundTripListener listener;
+
+        public FanOutInit(int channels, boolean keyed, RoundTripListener listener) {
+            this.channels = channels;
+            this.keyed = keyed;
+            this.listener = listener;
+        }
+    }
+
+    public static void start(FanOutInit init, int workers, int throughput) {
+        if (Kompics.isOn()) {
+            Kompics.shutdown();
+        }
+        Kompics.createAndStart(FanOutLauncher.class, init, workers, throughput);
+    }
+
+    public static void stop() {
+        Kompics.shutdown();
+    }
+}
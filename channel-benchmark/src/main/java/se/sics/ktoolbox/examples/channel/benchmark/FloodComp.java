@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.concurrent.atomic.AtomicLong;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Handler;
+import se.sics.kompics.Init;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.Start;
+import se.sics.ktoolbox.examples.channel.ComponentHelper;
+import se.sics.ktoolbox.examples.channel.CreditWindow;
+import se.sics.ktoolbox.examples.channel.XEvent;
+import se.sics.ktoolbox.examples.channel.XYPort;
+import se.sics.ktoolbox.examples.channel.YEvent;
+
+/**
+ * Open loop producer: every tick it sends a burst of x without waiting for
+ * the y, then ticks again. With a sink window it skips bursts while the sink
+ * signals back-pressure instead of piling up deferred x. Without one it keeps
+ * sending until the sink window refuses an x and drops the rest of that
+ * burst. With a key count the
+ * x ids cycle over that many keys, like state updates.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class FloodComp extends ComponentDefinition {
+
+    Negative<XYPort> xyPort = provides(XYPort.class);
+    Negative<TickPort> tickOut = provides(TickPort.class);
+    Positive<TickPort> tickIn = requires(TickPort.class);
+
+    private final FloodInit init;
+    private int nextId = 0;
+
+    public FloodComp(FloodInit init) {
+        this.init = init;
+        subscribe(handleStart, control);
+        subscribe(handleTick, tickIn);
+        subscribe(handleYMsg, xyPort);
+        subscribe(ComponentHelper.drainY(handleYMsg), xyPort);
+    }
+
+    Handler handleStart = new Handler<Start>() {
+        @Override
+        public void handle(Start event) {
+            trigger(TickPort.Tick.EVENT, tickOut);
+        }
+    };
+
+    Handler handleTick = new Handler<TickPort.Tick>() {
+        @Override
+        public void handle(TickPort.Tick event) {
+            if (init.sinkCredits == null || !init.sinkCredits.isBlocked()) {
+                int sent = 0;
+                try {
+                    for (; sent < init.burst; sent++) {
+                        trigger(new XEvent(nextId), xyPort);
+                        nextId = (init.keys > 0 ? (nextId + 2) % (2 * init.keys) : nextId + 2);
+                    }
+                } catch (RuntimeException ex) {
+                    init.refused.addAndGet(init.burst - sent);
+                }
+                init.sent.addAndGet(sent);
+            }
+            trigger(TickPort.Tick.EVENT, tickOut);
+        }
+    };
+
+    Handler handleYMsg = new Handler<YEvent>() {
+        @Override
+        public void handle(YEvent event) {
+            if (init.credits != null) {
+                init.credits.grant(event);
+            }
+            init.received.incrementAndGet();
+        }
+    };
+
+    public static class FloodInit extends Init<FloodComp> {
+
+        public final int burst;
+        /**
+         * credits granted back for the y received, null if none
+         */
+        public final CreditWindow credits;
+        /**
+         * window of the sink watched for back-pressure, null to ignore it
+         */
+        public final CreditWindow sinkCredits;
+        /**
+         * distinct x ids sent over and over, 0 for ids that keep growing
+         */
+        public final int keys;
+        public final AtomicLong sent = new AtomicLong();
+        /**
+         * x not sent because the sink window was full
+         */
+        public final AtomicLong refused = new AtomicLong();
+        public final AtomicLong received = new AtomicLong();
+
+        public FloodInit(int burst, CreditWindow credits, CreditWindow sinkCredits) {
+            this(burst, credits, sinkCredits, 0);
+        }
+
+        public FloodInit(int burst, CreditWindow credits, CreditWindow sinkCredits, int keys) {
+            this.burst = burst;
+            this.credits = credits;
+            this.sinkCredits = sinkCredits;
+            this.keys = keys;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.kompics.Component;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Init;
+import se.sics.kompics.Kompics;
+import se.sics.ktoolbox.examples.channel.BComp;
+import se.sics.ktoolbox.examples.channel.BComp.BInit;
+import se.sics.ktoolbox.examples.channel.ComponentHelper;
+import se.sics.ktoolbox.examples.channel.ConflatingChannel;
+import se.sics.ktoolbox.examples.channel.CreditWindow;
+import se.sics.ktoolbox.examples.channel.XYPort;
+import se.sics.ktoolbox.examples.channel.benchmark.FloodComp.FloodInit;
+
+/**
+ * Saturates a B with a {@link FloodComp} and logs, every second, the heap
+ * left after the last collection next to the flow control counters.
+ * <ul>
+ * <li>PLAIN: plain channel, the queue of B grows until the heap runs out</li>
+ * <li>DEFER: credit windows on both sides, the flood ignores them and the
+ * excess waits in the window of B: the queue of B stays at the credits, the
+ * deferred x grow to {@value #MAX_DEFERRED} and the x beyond are refused</li>
+ * <li>BACKPRESSURE: same windows, the flood pauses while B signals
+ * back-pressure</li>
+ * <li>CONFLATE: the flood cycles over {@value #KEYS} keys on a conflating
+ * channel, B only handles the latest x of each key</li>
+ * </ul>
+ * With back-pressure or conflation the heap stays flat at saturation.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar
+ * se.sics.ktoolbox.examples.channel.benchmark.FlowControlStress BACKPRESSURE 60}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class FlowControlStress extends ComponentDefinition {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FlowControlStress.class);
+
+    public static enum Mode {
+
+        PLAIN, DEFER, BACKPRESSURE, CONFLATE
+    }
+
+    public static final int BURST = 1000;
+    public static final int CREDITS = 1024;
+    public static final int HIGH_WATERMARK = 4096;
+    public static final int MAX_DEFERRED = 65536;
+    public static final int KEYS = 1024;
+
+    public FlowControlStress(StressInit init) {
+        Component flood = create(FloodComp.class, init.flood);
+        Component b = create(BComp.class, new BInit(1, null, null, init.sinkCredits));
+        connect(flood.getPositive(TickPort.class), flood.getNegative(TickPort.class));
+        if (init.mode == Mode.PLAIN) {
+            connect(flood.getPositive(XYPort.class), b.getNegative(XYPort.class));
+        } else if (init.mode == Mode.CONFLATE) {
+            init.conflating = ComponentHelper.connectConflating(flood.getPositive(XYPort.class), null,
+                    b.getNegative(XYPort.class), null);
+        } else {
+            ComponentHelper.connectFlowControlled(flood.getPositive(XYPort.class), null,
+                    b.getNegative(XYPort.class), null, init.flood.credits, init.sinkCredits);
+        }
+    }
+
+    public static class StressInit extends Init<FlowControlStress> {
+
+        public final Mode mode;
+        public final CreditWindow sinkCredits;
+        public final FloodInit flood;
+        /**
+         * set once the channel is connected in CONFLATE mode
+         */
+        public volatile ConflatingChannel<XYPort> conflating;
+
+        public StressInit(Mode mode) {
+            this.mode = mode;
+            if (mode == Mode.PLAIN) {
+                this.sinkCredits = null;
+                this.flood = new FloodInit(BURST, null, null);
+            } else if (mode == Mode.CONFLATE) {
+                this.sinkCredits = null;
+                this.flood = new FloodInit(BURST, null, null, KEYS);
+            } else {
+                this.sinkCredits = new CreditWindow(CREDITS, HIGH_WATERMARK, MAX_DEFERRED);
+                CreditWindow floodCredits = new CreditWindow(CREDITS, HIGH_WATERMARK, MAX_DEFERRED);
+                this.flood = new FloodInit(BURST, floodCredits, mode == Mode.BACKPRESSURE ? sinkCredits : null);
+            }
+        }
+    }
+
+    private static long heapAfterGc() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return used;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Mode mode = (args.length > 0 ? Mode.valueOf(args[0].toUpperCase()) : Mode.BACKPRESSURE);
+        int seconds = (args.length > 1 ? Integer.parseInt(args[1]) : 60);
+        StressInit init = new StressInit(mode);
+        if (Kompics.isOn()) {
+            Kompics.shutdown();
+        }
+        Kompics.createAndStart(FlowControlStress.class, init, Runtime.getRuntime().availableProcessors(), 20);
+        try {
+            for (int i = 1; i <= seconds; i++) {
+                Thread.sleep(1000);
+                CreditWindow sink = init.sinkCredits;
+                ConflatingChannel<XYPort> conflating = init.conflating;
+                LOG.info("{}s {} heap after gc:{}MB sent:{} refused:{} received:{} deferred:{} conflated:{}",
+                        new Object[]{i, mode, heapAfterGc() >> 20, init.flood.sent.get(), init.flood.refused.get(),
+                            init.flood.received.get(), sink == null ? 0 : sink.deferred(),
+                            conflating == null ? 0 : conflating.conflatedX() + conflating.conflatedY()});
+            }
+        } finally {
+            Kompics.shutdown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.sics.ktoolbox.examples.channel.IdExtractor;
+import se.sics.ktoolbox.examples.channel.IdSet;
+import se.sics.ktoolbox.examples.channel.IdSetFilter;
+import se.sics.ktoolbox.examples.channel.XEvent;
+
+/**
+ * Cost of deciding where one x event goes when a receiver covers
+ * {@code keys} ids: one {@link IdExtractor} channel per key, all evaluated by
+ * the port, against one {@link IdSetFilter} channel. Consecutive ids keep the
+ * set as a bitset; spread ids make it wider than {@link IdSet#DENSE_SPAN}
+ * from 1024 keys on, so it is searched as intervals.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar IdSetFilterBenchmark}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IdSetFilterBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    public int keys;
+    @Param({"1", "1000"})
+    public int spread;
+
+    private IdExtractor<XEvent>[] extractors;
+    private IdSetFilter<XEvent> set;
+    private XEvent[] events;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        extractors = new IdExtractor[keys];
+        IdSet.Builder ids = IdSet.builder();
+        for (int i = 0; i < keys; i++) {
+            extractors[i] = new IdExtractor<>(i * spread, true, XEvent.class);
+            ids.add(i * spread);
+        }
+        set = new IdSetFilter<>(ids.build(), XEvent.class);
+        events = new XEvent[1024];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new XEvent((i % keys) * spread);
+        }
+    }
+
+    private XEvent nextEvent() {
+        next = (next + 1) & (events.length - 1);
+        return events[next];
+    }
+
+    @Benchmark
+    public int channelPerKey() {
+        XEvent event = nextEvent();
+        int accepted = 0;
+        for (IdExtractor<XEvent> extractor : extractors) {
+            if (extractor.getValue().equals(extractor.getValue(event))) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public boolean idSet() {
+        XEvent event = nextEvent();
+        return set.getValue().equals(set.getValue(event));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.io.File;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.kompics.Component;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Init;
+import se.sics.kompics.Kompics;
+import se.sics.ktoolbox.examples.channel.AComp;
+import se.sics.ktoolbox.examples.channel.AComp.AInit;
+import se.sics.ktoolbox.examples.channel.BComp;
+import se.sics.ktoolbox.examples.channel.BComp.BInit;
+import se.sics.ktoolbox.examples.channel.ComponentHelper;
+import se.sics.ktoolbox.examples.channel.EventJournal;
+import se.sics.ktoolbox.examples.channel.JournalReplayer;
+import se.sics.ktoolbox.examples.channel.LoadStats;
+import se.sics.ktoolbox.examples.channel.XYPort;
+
+/**
+ * Records the traffic of an A-B ping-pong into an {@link EventJournal}, then
+ * replays the recorded x into a fresh B and reports how fast B handled them:
+ * <pre>
+ * java -cp target/benchmarks.jar se.sics.ktoolbox.examples.channel.benchmark.JournalReplay record /tmp 10 16
+ * java -cp target/benchmarks.jar se.sics.ktoolbox.examples.channel.benchmark.JournalReplay replay /tmp fast
+ * </pre>
+ * record takes the seconds to record and the window, replay fast or
+ * recorded for the recorded speed.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class JournalReplay extends ComponentDefinition {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournalReplay.class);
+
+    public static final String NAME = "xy-journal";
+
+    public JournalReplay(JournalInit init) {
+        if (init.journal != null) {
+            Component a = create(AComp.class, new AInit(0, AInit.NONE, init.window, null, null, null));
+            Component b = create(BComp.class, new BInit(1));
+            ComponentHelper.connectJournaled(a.getPositive(XYPort.class), null, b.getNegative(XYPort.class), null, init.journal);
+        } else {
+            Component b = create(BComp.class, new BInit(1, null, init.stats));
+            init.replayer.into(b.getNegative(XYPort.class));
+        }
+    }
+
+    public static class JournalInit extends Init<JournalReplay> {
+
+        public final EventJournal journal;
+        public final int window;
+        public final JournalReplayer replayer;
+        public final LoadStats stats;
+
+        private JournalInit(EventJournal journal, int window, JournalReplayer replayer, LoadStats stats) {
+            this.journal = journal;
+            this.window = window;
+            this.replayer = replayer;
+            this.stats = stats;
+        }
+
+        public static JournalInit record(EventJournal journal, int window) {
+            return new JournalInit(journal, window, null, null);
+        }
+
+        public static JournalInit replay(JournalReplayer replayer, LoadStats stats) {
+            return new JournalInit(null, 0, replayer, stats);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2 || !("record".equals(args[0]) || "replay".equals(args[0]))) {
+            throw new RuntimeException("usage: record dir [seconds] [window] | replay dir [fast|recorded]");
+        }
+        File dir = new File(args[1]);
+        int workers = Runtime.getRuntime().availableProcessors();
+        if ("record".equals(args[0])) {
+            int seconds = (args.length > 2 ? Integer.parseInt(args[2]) : 10);
+            int window = (args.length > 3 ? Integer.parseInt(args[3]) : 1);
+            EventJournal journal = new EventJournal(dir, NAME);
+            Kompics.createAndStart(JournalReplay.class, JournalInit.record(journal, window), workers, 20);
+            Thread.sleep(seconds * 1000L);
+            Kompics.shutdown();
+            journal.close();
+            LOG.info("recorded:{} events", journal.size());
+        } else {
+            boolean recordedSpeed = (args.length > 2 && "recorded".equals(args[2]));
+            JournalReplayer replayer = new JournalReplayer(dir, NAME, recordedSpeed);
+            LoadStats stats = new LoadStats(0);
+            Kompics.createAndStart(JournalReplay.class, JournalInit.replay(replayer, stats), workers, 20);
+            long start = System.nanoTime();
+            replayer.start();
+            replayer.await();
+            while (stats.hops() < replayer.replayed()) {
+                Thread.sleep(1);
+            }
+            long elapsed = System.nanoTime() - start;
+            Kompics.shutdown();
+            LOG.info("replayed:{} x in {}ms, {} x/s", new Object[]{replayer.replayed(),
+                elapsed / 1000000, replayer.replayed() * 1000000000L / elapsed});
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import com.google.common.base.Optional;
+import io.netty.buffer.ByteBuf;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Handler;
+import se.sics.kompics.Init;
+import se.sics.kompics.Negative;
+import se.sics.kompics.Positive;
+import se.sics.kompics.network.Address;
+import se.sics.kompics.network.Header;
+import se.sics.kompics.network.Msg;
+import se.sics.kompics.network.Network;
+import se.sics.kompics.network.Transport;
+import se.sics.kompics.network.netty.serialization.Serializer;
+import se.sics.kompics.network.netty.serialization.Serializers;
+import se.sics.ktoolbox.examples.channel.XEvent;
+import se.sics.ktoolbox.examples.channel.XYCodec;
+import se.sics.ktoolbox.examples.channel.XYEvent;
+import se.sics.ktoolbox.examples.channel.XYPort;
+import se.sics.ktoolbox.examples.channel.YEvent;
+
+/**
+ * Carries the x and y of an XYPort over the kompics network to the bridge of
+ * the peer, encoded with {@link XYCodec}. The x of an A connected to
+ * {@link #toA} come out of {@link #toB} at the peer, the y of a B connected
+ * to {@link #toB} come out of {@link #toA} at the peer. Timestamps cross
+ * unchanged, both bridges are meant to share a host.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class NetworkBridge extends ComponentDefinition {
+
+    public static final String SERIALIZER = "xyMsg";
+    public static final int SERIALIZER_ID = 200;
+
+    Positive<Network> network = requires(Network.class);
+    Positive<XYPort> toA = requires(XYPort.class);
+    Negative<XYPort> toB = provides(XYPort.class);
+
+    private final XYAddress self;
+    private final XYAddress peer;
+
+    public NetworkBridge(BridgeInit init) {
+        this.self = init.self;
+        this.peer = init.peer;
+        subscribe(handleX, toA);
+        subscribe(handleY, toB);
+        subscribe(handleMsg, network);
+    }
+
+    Handler handleX = new Handler<XEvent>() {
+        @Override
+        public void handle(XEvent event) {
+            //the copy outlives the reference a pooled event is delivered with
+            trigger(new XYMsg(self, peer, new XEvent(event.getId(), event.getTimestamp())), network);
+            event.release();
+        }
+    };
+
+    Handler handleY = new Handler<YEvent>() {
+        @Override
+        public void handle(YEvent event) {
+            trigger(new XYMsg(self, peer, new YEvent(event.getId(), event.getTimestamp())), network);
+            event.release();
+        }
+    };
+
+    Handler handleMsg = new Handler<XYMsg>() {
+        @Override
+        public void handle(XYMsg msg) {
+            if (msg.event instanceof XEvent) {
+                trigger(msg.event, toB);
+            } else {
+                trigger(msg.event, toA);
+            }
+        }
+    };
+
+    /**
+     * Registers the serializer of {@link XYMsg}, once per JVM before the
+     * networks start.
+     */
+    public static void registerSerializer() {
+        Serializers.register(new XYMsgSerializer(), SERIALIZER);
+        Serializers.register(XYMsg.class, SERIALIZER);
+    }
+
+    public static class BridgeInit extends Init<NetworkBridge> {
+
+        public final XYAddress self;
+        public final XYAddress peer;
+
+        public BridgeInit(XYAddress self, XYAddress peer) {
+            this.self = self;
+            this.peer = peer;
+        }
+    }
+
+    public static class XYAddress implements Address {
+
+        private final InetSocketAddress socket;
+
+        public XYAddress(InetAddress ip, int port) {
+            this.socket = new InetSocketAddress(ip, port);
+        }
+
+        @Override
+        public InetAddress getIp() {
+            return socket.getAddress();
+        }
+
+        @Override
+        public int getPort() {
+            return socket.getPort();
+        }
+
+        @Override
+        public InetSocketAddress asSocket() {
+            return socket;
+        }
+
+        @Override
+        public boolean sameHostAs(Address other) {
+            return socket.equals(other.asSocket());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof XYAddress && socket.equals(((XYAddress) obj).socket);
+        }
+
+        @Override
+        public int hashCode() {
+            return socket.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return socket.toString();
+        }
+    }
+
+    public static class XYMsg implements Msg<XYAddress, XYMsg>, Header<XYAddress> {
+
+        public final XYAddress source;
+        public final XYAddress destination;
+        public final XYEvent event;
+
+        public XYMsg(XYAddress source, XYAddress destination, XYEvent event) {
+            this.source = source;
+            this.destination = destination;
+            this.event = event;
+        }
+
+        @Override
+        public XYMsg getHeader() {
+            return this;
+        }
+
+        @Override
+        public XYAddress getSource() {
+            return source;
+        }
+
+        @Override
+        public XYAddress getDestination() {
+            return destination;
+        }
+
+        @Override
+        public Transport getProtocol() {
+            return Transport.TCP;
+        }
+    }
+
+    private static class XYMsgSerializer implements Serializer {
+
+        @Override
+        public int identifier() {
+            return SERIALIZER_ID;
+        }
+
+        @Override
+        public void toBinary(Object o, ByteBuf buf) {
+            XYMsg msg = (XYMsg) o;
+            writeAddress(msg.source, buf);
+            writeAddress(msg.destination, buf);
+            byte[] bytes = new byte[XYCodec.SINGLE_SIZE];
+            XYCodec.write(msg.event, ByteBuffer.wrap(bytes), 0);
+            buf.writeBytes(bytes);
+        }
+
+        @Override
+        public Object fromBinary(ByteBuf buf, Optional<Object> hint) {
+            XYAddress source = readAddress(buf);
+            XYAddress destination = readAddress(buf);
+            byte[] bytes = new byte[XYCodec.SINGLE_SIZE];
+            buf.readBytes(bytes);
+            return new XYMsg(source, destination, XYCodec.read(ByteBuffer.wrap(bytes), 0));
+        }
+
+        private static void writeAddress(XYAddress address, ByteBuf buf) {
+            byte[] ip = address.getIp().getAddress();
+            buf.writeByte(ip.length);
+            buf.writeBytes(ip);
+            buf.writeInt(address.getPort());
+        }
+
+        private static XYAddress readAddress(ByteBuf buf) {
+            byte[] ip = new byte[buf.readByte()];
+            buf.readBytes(ip);
+            try {
+                return new XYAddress(InetAddress.getByAddress(ip), buf.readInt());
+            } catch (UnknownHostException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
+    }
+}
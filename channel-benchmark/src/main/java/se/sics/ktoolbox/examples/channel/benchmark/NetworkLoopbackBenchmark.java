@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import se.sics.kompics.Component;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Init;
+import se.sics.kompics.Kompics;
+import se.sics.kompics.network.Network;
+import se.sics.kompics.network.netty.NettyInit;
+import se.sics.kompics.network.netty.NettyNetwork;
+import se.sics.ktoolbox.examples.channel.AComp;
+import se.sics.ktoolbox.examples.channel.AComp.AInit;
+import se.sics.ktoolbox.examples.channel.BComp;
+import se.sics.ktoolbox.examples.channel.BComp.BInit;
+import se.sics.ktoolbox.examples.channel.XYPort;
+import se.sics.ktoolbox.examples.channel.benchmark.NetworkBridge.BridgeInit;
+import se.sics.ktoolbox.examples.channel.benchmark.NetworkBridge.XYAddress;
+
+/**
+ * The network side of {@link SharedMemoryBenchmark}: an A and a B each behind
+ * its own netty network on the loopback interface, joined by a pair of
+ * {@link NetworkBridge}s. One operation is one round trip through both
+ * networks, reported as average time like the ring and socket cases.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar NetworkLoopbackBenchmark}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NetworkLoopbackBenchmark extends RoundTripBenchmark {
+
+    @Param({"1"})
+    public int window;
+    @Param({"4"})
+    public int workers;
+
+    @Override
+    protected void start(RoundTripCounter counter) {
+        if (Kompics.isOn()) {
+            Kompics.shutdown();
+        }
+        NetworkBridge.registerSerializer();
+        InetAddress ip = InetAddress.getLoopbackAddress();
+        LoopbackInit init = new LoopbackInit(new XYAddress(ip, freePort()), new XYAddress(ip, freePort()),
+                window, counter);
+        Kompics.createAndStart(Loopback.class, init, workers, 20);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    public static class Loopback extends ComponentDefinition {
+
+        public Loopback(LoopbackInit init) {
+            Component a = create(AComp.class, new AInit(0, AInit.NONE, init.window, init.counter, null, null));
+            Component b = create(BComp.class, new BInit(1));
+            Component aNetwork = create(NettyNetwork.class, new NettyInit(init.aAddress));
+            Component bNetwork = create(NettyNetwork.class, new NettyInit(init.bAddress));
+            Component aBridge = create(NetworkBridge.class, new BridgeInit(init.aAddress, init.bAddress));
+            Component bBridge = create(NetworkBridge.class, new BridgeInit(init.bAddress, init.aAddress));
+            connect(aNetwork.getPositive(Network.class), aBridge.getNegative(Network.class));
+            connect(bNetwork.getPositive(Network.class), bBridge.getNegative(Network.class));
+            connect(a.getPositive(XYPort.class), aBridge.getNegative(XYPort.class));
+            connect(bBridge.getPositive(XYPort.class), b.getNegative(XYPort.class));
+        }
+    }
+
+    public static class LoopbackInit extends Init<Loopback> {
+
+        public final XYAddress aAddress;
+        public final XYAddress bAddress;
+        public final int window;
+        public final RoundTripCounter counter;
+
+        public LoopbackInit(XYAddress aAddress, XYAddress bAddress, int window, RoundTripCounter counter) {
+            this.aAddress = aAddress;
+            this.bAddress = bAddress;
+            this.window = window;
+            this.counter = counter;
+        }
+    }
+}
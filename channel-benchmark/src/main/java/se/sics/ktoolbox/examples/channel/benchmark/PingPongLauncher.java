@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.List;
+import se.sics.kompics.Component;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Init;
+import se.sics.kompics.Kompics;
+import se.sics.ktoolbox.examples.channel.AComp;
+import se.sics.ktoolbox.examples.channel.AComp.AInit;
+import se.sics.ktoolbox.examples.channel.AffinityScheduler;
+import se.sics.ktoolbox.examples.channel.BComp;
+import se.sics.ktoolbox.examples.channel.BComp.BInit;
+import se.sics.ktoolbox.examples.channel.ComponentHelper;
+import se.sics.ktoolbox.examples.channel.EventPool;
+import se.sics.ktoolbox.examples.channel.IdExtractor;
+import se.sics.ktoolbox.examples.channel.LoadConfig.Affinity;
+import se.sics.ktoolbox.examples.channel.RoundTripListener;
+import se.sics.ktoolbox.examples.channel.XEvent;
+import se.sics.ktoolbox.examples.channel.XYPort;
+import se.sics.ktoolbox.examples.channel.YEvent;
+
+/**
+ * Independent A-B pairs ping-ponging forever, each A keeping {@code window}
+ * ping-pongs in flight. A ids are even, so x ids stay even and y ids odd. The
+ * filtered wirings use negative filters on a key of the other parity: every
+ * filter is evaluated on every hop but never blocks, so all wirings carry
+ * exactly the same traffic. The pooled wiring gives each pair its own x and y
+ * pools, collected in {@link PingPongInit#pools} when given. With an
+ * affinity scheduler each A is pinned to the worker of its B.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class PingPongLauncher extends ComponentDefinition {
+
+    public static enum Wiring {
+
+        PLAIN, FILTERED, COALESCING, POOLED, SPSC
+    }
+
+    public static final int MAX_BATCH = 1024;
+
+    public PingPongLauncher(PingPongInit init) {
+        for (int i = 0; i < init.pairs; i++) {
+            EventPool<XEvent> xPool = null;
+            EventPool<YEvent> yPool = null;
+            if (init.wiring == Wiring.POOLED) {
+                xPool = EventPool.xPool(2 * init.window);
+                yPool = EventPool.yPool(2 * init.window);
+                if (init.pools != null) {
+                    init.pools.add(xPool);
+                    init.pools.add(yPool);
+                }
+            }
+            Component a = create(AComp.class, new AInit(2 * i, AInit.NONE, init.window, init.listener, xPool, null));
+            Component b = create(BComp.class, new BInit(2 * i + 1, yPool, null));
+            switch (init.wiring) {
+                case PLAIN:
+                    connect(a.getPositive(XYPort.class), b.getNegative(XYPort.class));
+                    break;
+                case FILTERED:
+                    ComponentHelper.connect(a.getPositive(XYPort.class), new IdExtractor(1, false, XEvent.class),
+                            b.getNegative(XYPort.class), new IdExtractor(0, false, YEvent.class));
+                    break;
+                case COALESCING:
+                    ComponentHelper.connectCoalescing(a.getPositive(XYPort.class), new IdExtractor(1, false, XEvent.class),
+                            b.getNegative(XYPort.class), new IdExtractor(0, false, YEvent.class), MAX_BATCH);
+                    break;
+                case POOLED:
+                    ComponentHelper.connectPooled(a.getPositive(XYPort.class), new IdExtractor(1, false, XEvent.class),
+                            b.getNegative(XYPort.class), new IdExtractor(0, false, YEvent.class));
+                    break;
+                case SPSC:
+                    ComponentHelper.connectSpsc(a.getPositive(XYPort.class), new IdExtractor(1, false, XEvent.class),
+                            b.getNegative(XYPort.class), new IdExtractor(0, false, YEvent.class));
+                    break;
+                default:
+                    throw new RuntimeException("unknown wiring:" + init.wiring);
+            }
+            if (init.affinity != null) {
+                init.affinity.pin(a, b);
+            }
+        }
+    }
+
+    public static class PingPongInit extends Init<PingPongLauncher> {
+
+        public final int pairs;
+        public final int window;
+        public final Wiring wiring;
+        public final RoundTripListener listener;
+        public final List<EventPool<?>> pools;
+        public final AffinityScheduler affinity;
+
+        public PingPongInit(int pairs, int window, Wiring wiring, RoundTripListener listener) {
+            this(pairs, window, wiring, listener, null, null);
+        }
+
+        public PingPongInit(int pairs, int window, Wiring wiring, RoundTripListener listener,
+                List<EventPool<?>> pools) {
+            this(pairs, window, wiring, listener, pools, null);
+        }
+
+        public PingPongInit(int pairs, int window, Wiring wiring, RoundTripListener listener,
+                List<EventPool<?>> pools, AffinityScheduler affinity) {
+            this.pairs = pairs;
+            this.window = window;
+            this.wiring = wiring;
+            this.listener = listener;
+            this.pools = pools;
+            this.affinity = affinity;
+        }
+    }
+
+    public static void start(PingPongInit init, int workers, int throughput) {
+        if (Kompics.isOn()) {
+            Kompics.shutdown();
+        }
+        if (init.affinity != null) {
+            Kompics.setScheduler(init.affinity);
+        }
+        Kompics.createAndStart(PingPongLauncher.class, init, workers, throughput);
+    }
+
+    public static void start(int pairs, int window, Wiring wiring, RoundTripListener listener,
+            Affinity affinity, int workers, int throughput) {
+        start(new PingPongInit(pairs, window, wiring, listener, null, affinity.scheduler(workers)), workers, throughput);
+    }
+
+    public static void stop() {
+        Kompics.shutdown();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.openjdk.jmh.annotations.Param;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.ktoolbox.examples.channel.EventPool;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.PingPongInit;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.Wiring;
+
+/**
+ * Round trips with events allocated per hop against events recycled through
+ * {@code EventPool}s. Meant to be run with the gc profiler,
+ * {@code java -jar target/benchmarks.jar PooledEventBenchmark -prof gc}, whose
+ * gc.alloc.rate.norm is the garbage per round trip. What is left in pooled
+ * mode is the runtime's own per-event queueing.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class PooledEventBenchmark extends RoundTripBenchmark {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PooledEventBenchmark.class);
+
+    @Param({"FILTERED", "POOLED"})
+    public Wiring wiring;
+    @Param({"1", "16"})
+    public int window;
+    @Param({"4"})
+    public int pairs;
+    @Param({"4"})
+    public int workers;
+    @Param({"20"})
+    public int throughput;
+
+    private List<EventPool<?>> pools;
+
+    @Override
+    protected void start(RoundTripCounter counter) {
+        pools = new CopyOnWriteArrayList<>();
+        PingPongLauncher.start(new PingPongInit(pairs, window, wiring, counter, pools), workers, throughput);
+    }
+
+    @Override
+    protected void stopped() {
+        long created = 0;
+        for (EventPool<?> pool : pools) {
+            created += pool.created();
+        }
+        LOG.info("round trips:{} pooled events created:{}", counter.roundTrips(), created);
+    }
+}
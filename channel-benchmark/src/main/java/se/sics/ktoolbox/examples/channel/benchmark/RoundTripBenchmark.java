@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.sics.kompics.Kompics;
+
+/**
+ * Round trips counted by a {@link RoundTripCounter} across components started
+ * once per trial. Subclasses declare their parameters and start the
+ * components, one operation of {@link #roundTrip()} is one round trip.
+ * Throughput by default, subclasses may pick another mode.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public abstract class RoundTripBenchmark {
+
+    public static final int ROUND_TRIPS = 10000;
+
+    protected RoundTripCounter counter;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        counter = new RoundTripCounter();
+        start(counter);
+    }
+
+    /**
+     * Starts kompics with components reporting their round trips to counter.
+     */
+    protected abstract void start(RoundTripCounter counter);
+
+    /**
+     * Called once kompics is shut down at the end of the trial.
+     */
+    protected void stopped() {
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Kompics.shutdown();
+        stopped();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUND_TRIPS)
+    public void roundTrip() {
+        counter.await(ROUND_TRIPS);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import se.sics.ktoolbox.examples.channel.RoundTripListener;
+import se.sics.ktoolbox.examples.channel.YEvent;
+
+/**
+ * Counts round trips across all {@link se.sics.ktoolbox.examples.channel.AComp}
+ * and lets a benchmark thread wait for the next batch of them.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class RoundTripCounter implements RoundTripListener {
+
+    private final AtomicLong roundTrips = new AtomicLong();
+    private volatile long target = Long.MAX_VALUE;
+    private volatile Thread waiter;
+
+    @Override
+    public void roundTrip(YEvent event) {
+        if (roundTrips.incrementAndGet() >= target) {
+            Thread w = waiter;
+            if (w != null) {
+                LockSupport.unpark(w);
+            }
+        }
+    }
+
+    public long roundTrips() {
+        return roundTrips.get();
+    }
+
+    /**
+     * blocks until another n round trips completed. Only one thread may wait at
+     * a time.
+     */
+    public void await(long n) {
+        waiter = Thread.currentThread();
+        target = roundTrips.get() + n;
+        while (roundTrips.get() < target) {
+            //the timeout covers an unpark racing with the target update
+            LockSupport.parkNanos(this, 100000);
+        }
+        target = Long.MAX_VALUE;
+        waiter = null;
+    }
+}
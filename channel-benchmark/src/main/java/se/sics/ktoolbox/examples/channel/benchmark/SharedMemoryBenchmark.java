@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.sics.ktoolbox.examples.channel.MappedRing;
+import se.sics.ktoolbox.examples.channel.XEvent;
+import se.sics.ktoolbox.examples.channel.XYCodec;
+import se.sics.ktoolbox.examples.channel.XYEvent;
+import se.sics.ktoolbox.examples.channel.YEvent;
+
+/**
+ * Loopback round trip of one x answered by a y, through a pair of
+ * {@link MappedRing}s and through a TCP socket on the loopback interface,
+ * both carrying the {@link XYCodec} bytes and answered by an echo thread.
+ * The socket stands for the network path without the netty and kompics
+ * network layers on top, {@link NetworkLoopbackBenchmark} measures the round
+ * trip through them.
+ * Needs two free cores, the ring side spins.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar SharedMemoryBenchmark}.
+ * {@link SharedMemoryPingPong} runs the full bridge across two JVMs.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SharedMemoryBenchmark {
+
+    public static final int RING_CAPACITY = 1 << 20;
+
+    private File dir;
+    private MappedRing ping;
+    private MappedRing pong;
+    private Thread ringEcho;
+    private ServerSocket server;
+    private Socket client;
+    private Socket accepted;
+    private DataInputStream clientIn;
+    private OutputStream clientOut;
+    private Thread socketEcho;
+    private final byte[] clientBytes = new byte[XYCodec.SINGLE_SIZE];
+    private final ByteBuffer clientBuffer = ByteBuffer.wrap(clientBytes);
+    private volatile boolean running;
+    private int nextId = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        running = true;
+        dir = Files.createTempDirectory("shm-bench").toFile();
+        ping = MappedRing.create(new File(dir, "ping"), RING_CAPACITY);
+        pong = MappedRing.create(new File(dir, "pong"), RING_CAPACITY);
+        final MappedRing echoIn = MappedRing.open(new File(dir, "ping"), 1000);
+        final MappedRing echoOut = MappedRing.open(new File(dir, "pong"), 1000);
+        ringEcho = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running) {
+                    XYEvent x = echoIn.poll();
+                    if (x != null) {
+                        while (!echoOut.offer(new YEvent(x.getId() + 1, x.getTimestamp())) && running) {
+                        }
+                    }
+                }
+                echoIn.close();
+                echoOut.close();
+            }
+        }, "ring-echo");
+        ringEcho.start();
+
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        client.setTcpNoDelay(true);
+        clientIn = new DataInputStream(client.getInputStream());
+        clientOut = client.getOutputStream();
+        accepted = server.accept();
+        accepted.setTcpNoDelay(true);
+        final Socket echoSocket = accepted;
+        socketEcho = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] bytes = new byte[XYCodec.SINGLE_SIZE];
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                try {
+                    DataInputStream in = new DataInputStream(echoSocket.getInputStream());
+                    OutputStream out = echoSocket.getOutputStream();
+                    while (running) {
+                        in.readFully(bytes);
+                        XYEvent x = XYCodec.read(buffer, 0);
+                        XYCodec.write(new YEvent(x.getId() + 1, x.getTimestamp()), buffer, 0);
+                        out.write(bytes);
+                    }
+                } catch (IOException ex) {
+                    //closed on tear down
+                }
+            }
+        }, "socket-echo");
+        socketEcho.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        running = false;
+        client.close();
+        accepted.close();
+        server.close();
+        ringEcho.join();
+        socketEcho.join();
+        ping.close();
+        pong.close();
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public int ring() {
+        XEvent x = new XEvent(nextId);
+        nextId += 2;
+        while (!ping.offer(x)) {
+        }
+        XYEvent y;
+        while ((y = pong.poll()) == null) {
+        }
+        return y.getId();
+    }
+
+    @Benchmark
+    public int socket() throws IOException {
+        XEvent x = new XEvent(nextId);
+        nextId += 2;
+        XYCodec.write(x, clientBuffer, 0);
+        clientOut.write(clientBytes);
+        clientIn.readFully(clientBytes);
+        return XYCodec.read(clientBuffer, 0).getId();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.io.File;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.kompics.Component;
+import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Init;
+import se.sics.kompics.Kompics;
+import se.sics.ktoolbox.examples.channel.AComp;
+import se.sics.ktoolbox.examples.channel.AComp.AInit;
+import se.sics.ktoolbox.examples.channel.BComp;
+import se.sics.ktoolbox.examples.channel.BComp.BInit;
+import se.sics.ktoolbox.examples.channel.ComponentHelper;
+import se.sics.ktoolbox.examples.channel.XYPort;
+
+/**
+ * One A-B pair split over two JVMs of the same host, joined by a
+ * {@code SharedMemoryBridge}. Start the a side first, it creates the rings:
+ * <pre>
+ * java -cp target/benchmarks.jar se.sics.ktoolbox.examples.channel.benchmark.SharedMemoryPingPong a /dev/shm 16
+ * java -cp target/benchmarks.jar se.sics.ktoolbox.examples.channel.benchmark.SharedMemoryPingPong b /dev/shm
+ * </pre>
+ * The a side logs the round trips per second, the last argument being its
+ * window.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class SharedMemoryPingPong extends ComponentDefinition {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SharedMemoryPingPong.class);
+
+    public static final String NAME = "xy-pingpong";
+    public static final int RING_CAPACITY = 1 << 20;
+
+    public SharedMemoryPingPong(ShmInit init) {
+        if (init.aSide) {
+            Component a = create(AComp.class, new AInit(0, AInit.NONE, init.window, init.counter, null, null));
+            ComponentHelper.connectShared(a.getPositive(XYPort.class), init.dir, NAME, RING_CAPACITY);
+        } else {
+            Component b = create(BComp.class, new BInit(1));
+            ComponentHelper.connectShared(b.getNegative(XYPort.class), init.dir, NAME);
+        }
+    }
+
+    public static class ShmInit extends Init<SharedMemoryPingPong> {
+
+        public final boolean aSide;
+        public final File dir;
+        public final int window;
+        public final RoundTripCounter counter = new RoundTripCounter();
+
+        public ShmInit(boolean aSide, File dir, int window) {
+            this.aSide = aSide;
+            this.dir = dir;
+            this.window = window;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2 || !("a".equals(args[0]) || "b".equals(args[0]))) {
+            throw new RuntimeException("usage: a|b dir [window]");
+        }
+        ShmInit init = new ShmInit("a".equals(args[0]), new File(args[1]),
+                args.length > 2 ? Integer.parseInt(args[2]) : 1);
+        Kompics.createAndStart(SharedMemoryPingPong.class, init, Runtime.getRuntime().availableProcessors(), 20);
+        long last = 0;
+        while (true) {
+            Thread.sleep(1000);
+            if (init.aSide) {
+                long current = init.counter.roundTrips();
+                LOG.info("round trips/s:{}", current - last);
+                last = current;
+            }
+        }
+    }
+}
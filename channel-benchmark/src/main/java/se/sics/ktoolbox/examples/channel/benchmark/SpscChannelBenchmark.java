@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.PingPongInit;
+import se.sics.ktoolbox.examples.channel.benchmark.PingPongLauncher.Wiring;
+
+/**
+ * A-B pairs over filtered channels and over
+ * {@code ComponentHelper.connectSpsc} channels with the same filters.
+ * {@link #roundTrip()} counts round trips per second,
+ * {@link #singleRoundTrip()} samples the time of single round trips so the
+ * percentiles show the tail.
+ * <p>
+ * Run with {@code java -jar target/benchmarks.jar SpscChannelBenchmark}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class SpscChannelBenchmark extends RoundTripBenchmark {
+
+    @Param({"FILTERED", "SPSC"})
+    public Wiring wiring;
+    @Param({"1", "64"})
+    public int window;
+    @Param({"4"})
+    public int pairs;
+    @Param({"4"})
+    public int workers;
+    @Param({"20"})
+    public int throughput;
+
+    @Override
+    protected void start(RoundTripCounter counter) {
+        PingPongLauncher.start(new PingPongInit(pairs, window, wiring, counter), workers, throughput);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void singleRoundTrip() {
+        counter.await(1);
+    }
+}
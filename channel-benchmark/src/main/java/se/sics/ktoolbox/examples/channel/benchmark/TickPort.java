@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel.benchmark;
+
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortType;
+
+/**
+ * Loop port of {@link FloodComp}: it is connected to itself, so each tick it
+ * triggers comes back as the next step of the flood.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class TickPort extends PortType {
+
+    {
+        positive(Tick.class);
+    }
+
+    public static class Tick implements KompicsEvent {
+
+        public static final Tick EVENT = new Tick();
+    }
+}
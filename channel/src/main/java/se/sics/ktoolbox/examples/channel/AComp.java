@@ -39,22 +39,38 @@ public class AComp extends ComponentDefinition {
     Negative<XYPort> xyPort = provides(XYPort.class);
 
     private final int id;
+    private final int wrapId;
+    private final int window;
+    private final RoundTripListener listener;
+    private final EventPool<XEvent> xPool;
+    private final LoadStats stats;
+    private final LatencyHistogram latencies;
+    private final CreditWindow credits;
 
     public AComp(AInit init) {
         this.id = init.id;
+        this.wrapId = init.wrapId;
+        this.window = init.window;
+        this.listener = init.listener;
+        this.xPool = init.xPool;
+        this.stats = init.stats;
+        this.latencies = (stats == null ? null : stats.register());
+        this.credits = init.credits;
         this.logPrefix = id + " ";
         LOG.info("{}initiating", logPrefix);
         subscribe(handleStart, control);
         subscribe(handleYMsg, xyPort);
+        subscribe(ComponentHelper.unbatchY(handleYMsg), xyPort);
+        subscribe(ComponentHelper.drainY(handleYMsg), xyPort);
     }
 
     Handler handleStart = new Handler<Start>() {
         @Override
         public void handle(Start event) {
             LOG.info("{}starting...", logPrefix);
-            if (id == 0) {
+            for (int i = 0; i < window; i++) {
                 LOG.info("{}sending x:{}", logPrefix, id);
-                trigger(new XEvent(id), xyPort);
+                sendX(id);
             }
         }
     };
@@ -62,21 +78,87 @@ public class AComp extends ComponentDefinition {
     Handler handleYMsg = new Handler<YEvent>() {
         @Override
         public void handle(YEvent event) {
-            LOG.info("{}received y:{}", logPrefix, event.id);
-            if(event.id == 15) {
-                System.exit(1);
+            if (credits != null) {
+                credits.grant(event);
             }
-            LOG.info("{}sending x:{}", logPrefix, event.id + 1);
-            trigger(new XEvent(event.id + 1), xyPort);
+            if (LOG.isInfoEnabled()) {
+                LOG.info("{}received y:{}", logPrefix, event.getId());
+            }
+            if (listener != null) {
+                listener.roundTrip(event);
+            }
+            if (stats != null) {
+                latencies.record(System.nanoTime() - event.getTimestamp());
+                if (!stats.hop()) {
+                    event.release();
+                    return;
+                }
+            }
+            int nextId = event.getId() + 1;
+            if (wrapId != AInit.NONE && nextId > wrapId) {
+                nextId = id;
+            }
+            if (LOG.isInfoEnabled()) {
+                LOG.info("{}sending x:{}", logPrefix, nextId);
+            }
+            sendX(nextId);
+            event.release();
         }
     };
 
+    private void sendX(int xId) {
+        XEvent x = (xPool == null ? new XEvent(xId) : xPool.acquire(xId));
+        trigger(x, xyPort);
+        x.release();
+    }
+
     public static class AInit extends Init<AComp> {
 
+        public static final int NONE = -1;
+
         public final int id;
+        /**
+         * x ids past this value restart from {@link #id}, {@link #NONE} lets
+         * them grow
+         */
+        public final int wrapId;
+        /**
+         * number of x sent on start, each starting its own ping-pong
+         */
+        public final int window;
+        public final RoundTripListener listener;
+        /**
+         * source of the x sent, null to allocate a new x per hop
+         */
+        public final EventPool<XEvent> xPool;
+        /**
+         * load run this component takes part in, null if none
+         */
+        public final LoadStats stats;
+        /**
+         * credits granted back to the flow controlled channels delivering y,
+         * null if none
+         */
+        public final CreditWindow credits;
 
         public AInit(int id) {
+            this(id, NONE, id == 0 ? 1 : 0, null, null, null);
+        }
+
+        public AInit(int id, int wrapId, int window, RoundTripListener listener,
+                EventPool<XEvent> xPool, LoadStats stats) {
+            this(id, wrapId, window, listener, xPool, stats, null);
+        }
+
+        public AInit(int id, int wrapId, int window, RoundTripListener listener,
+                EventPool<XEvent> xPool, LoadStats stats, CreditWindow credits) {
             this.id = id;
+            this.wrapId = wrapId;
+            this.window = window;
+            this.listener = listener;
+            this.xPool = xPool;
+            this.stats = stats;
+            this.credits = credits;
         }
     }
 }
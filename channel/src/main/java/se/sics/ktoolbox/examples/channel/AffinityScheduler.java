@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.kompics.Component;
+import se.sics.kompics.Scheduler;
+
+/**
+ * Scheduler keeping pinned components on a fixed worker. Both ends of a
+ * channel built with
+ * {@link ComponentHelper#connect(se.sics.kompics.Positive, se.sics.kompics.ChannelFilter, se.sics.kompics.Negative, se.sics.kompics.ChannelFilter, AffinityScheduler)}
+ * are pinned to the same worker, so a ping-pong between them never leaves
+ * that worker's cache. Unpinned components go through a shared queue served by
+ * any worker that has nothing of its own to run.
+ * <p>
+ * With inline delivery, a pinned component that becomes ready because of a
+ * trigger made on its own worker runs right away on the triggering thread
+ * instead of being queued. Inline runs do not nest, so the stack stays bounded.
+ * <p>
+ * Install with {@code Kompics.setScheduler} before
+ * {@code Kompics.createAndStart}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class AffinityScheduler extends Scheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AffinityScheduler.class);
+    private static final long IDLE_PARK_NANOS = 1000000;
+
+    private final Worker[] workers;
+    private final boolean inline;
+    private final ConcurrentHashMap<Component, Integer> pinned = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Component> shared = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public AffinityScheduler(int workers, boolean inline) {
+        this.inline = inline;
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(i);
+        }
+    }
+
+    /**
+     * Puts both components on the same worker, the one either of them is already
+     * pinned to if any.
+     */
+    public void pin(Component a, Component b) {
+        synchronized (pinned) {
+            Integer worker = pinned.get(a);
+            if (worker == null) {
+                worker = pinned.get(b);
+            }
+            if (worker == null) {
+                worker = (nextWorker.getAndIncrement() & Integer.MAX_VALUE) % workers.length;
+            }
+            if (!pinned.containsKey(a)) {
+                pinned.put(a, worker);
+            }
+            if (!pinned.containsKey(b)) {
+                pinned.put(b, worker);
+            }
+        }
+    }
+
+    @Override
+    public void schedule(Component c, int wid) {
+        Integer pin = pinned.get(c);
+        if (pin == null) {
+            shared.offer(c);
+            wakeIdle();
+            return;
+        }
+        Worker worker = workers[pin];
+        if (inline && worker.inlineDepth == 0 && worker == Thread.currentThread()) {
+            worker.inlineDepth++;
+            try {
+                executeComponent(c, worker.id);
+            } finally {
+                worker.inlineDepth--;
+            }
+            return;
+        }
+        worker.queue.offer(c);
+        LockSupport.unpark(worker);
+    }
+
+    private void wakeIdle() {
+        for (Worker worker : workers) {
+            if (worker.idle) {
+                LockSupport.unpark(worker);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void proceed() {
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        asyncShutdown();
+        for (Worker worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void asyncShutdown() {
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private class Worker extends Thread {
+
+        final int id;
+        final ConcurrentLinkedQueue<Component> queue = new ConcurrentLinkedQueue<>();
+        //only touched by this worker's thread
+        int inlineDepth = 0;
+        volatile boolean idle = false;
+
+        Worker(int id) {
+            super("Kompics-affinity-worker-" + id);
+            this.id = id;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                Component c = queue.poll();
+                if (c == null) {
+                    c = shared.poll();
+                }
+                if (c == null) {
+                    idle = true;
+                    if (queue.isEmpty() && shared.isEmpty()) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                    continue;
+                }
+                try {
+                    executeComponent(c, id);
+                } catch (Throwable t) {
+                    LOG.error("worker:{} component execution failed", id, t);
+                }
+            }
+        }
+    }
+}
@@ -38,13 +38,23 @@ public class BComp extends ComponentDefinition {
     Positive<XYPort> xyPort = requires(XYPort.class);
 
     private final int id;
+    private final EventPool<YEvent> yPool;
+    private final LoadStats stats;
+    private final LatencyHistogram latencies;
+    private final CreditWindow credits;
 
     public BComp(BInit init) {
         this.id = init.id;
+        this.yPool = init.yPool;
+        this.stats = init.stats;
+        this.latencies = (stats == null ? null : stats.register());
+        this.credits = init.credits;
         this.logPrefix = id + " ";
         LOG.info("{}initiating", logPrefix);
         subscribe(handleStart, control);
         subscribe(handleXMsg, xyPort);
+        subscribe(ComponentHelper.unbatchX(handleXMsg), xyPort);
+        subscribe(ComponentHelper.drainX(handleXMsg), xyPort);
     }
 
     Handler handleStart = new Handler<Start>() {
@@ -57,19 +67,57 @@ public class BComp extends ComponentDefinition {
     Handler handleXMsg = new Handler<XEvent>() {
         @Override
         public void handle(XEvent event) {
-            LOG.info("{}received x:{}", logPrefix, event.id);
-            LOG.info("{}sending y:{}", logPrefix, event.id + 1);
-            trigger(new YEvent(event.id + 1), xyPort);
-            
+            if (credits != null) {
+                credits.grant(event);
+            }
+            if (LOG.isInfoEnabled()) {
+                LOG.info("{}received x:{}", logPrefix, event.getId());
+                LOG.info("{}sending y:{}", logPrefix, event.getId() + 1);
+            }
+            if (stats != null) {
+                latencies.record(System.nanoTime() - event.getTimestamp());
+                if (!stats.hop()) {
+                    event.release();
+                    return;
+                }
+            }
+            YEvent y = (yPool == null ? new YEvent(event.getId() + 1) : yPool.acquire(event.getId() + 1));
+            trigger(y, xyPort);
+            y.release();
+            event.release();
         }
     };
 
     public static class BInit extends Init<BComp> {
 
         public final int id;
+        /**
+         * source of the y sent, null to allocate a new y per hop
+         */
+        public final EventPool<YEvent> yPool;
+        /**
+         * load run this component takes part in, null if none
+         */
+        public final LoadStats stats;
+        /**
+         * credits granted back to the flow controlled channels delivering x,
+         * null if none
+         */
+        public final CreditWindow credits;
 
         public BInit(int id) {
+            this(id, null, null);
+        }
+
+        public BInit(int id, EventPool<YEvent> yPool, LoadStats stats) {
+            this(id, yPool, stats, null);
+        }
+
+        public BInit(int id, EventPool<YEvent> yPool, LoadStats stats, CreditWindow credits) {
             this.id = id;
+            this.yPool = yPool;
+            this.stats = stats;
+            this.credits = credits;
         }
     }
 }
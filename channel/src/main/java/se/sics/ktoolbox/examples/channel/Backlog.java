@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+/**
+ * Events a {@link SpscChannel} holds for its receiver until the next
+ * {@link XYDrainEvent} is handled. Offered to by the sender, polled by the
+ * receiver. Offer retains the event, whose reference goes to the receiver
+ * with it.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+interface Backlog<E extends XYEvent> {
+
+    void offer(E event);
+
+    /**
+     * @return null if the backlog is empty
+     */
+    E poll();
+
+    boolean isEmpty();
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Channel merging the x and y events it forwards into {@link XYBatchEvent}s.
+ * The first event opens a batch that is delivered right away, so a lone event
+ * is not delayed. Events forwarded while that batch still sits in the
+ * receiver's queue - typically the rest of the sender's scheduling quantum -
+ * are appended to it instead of being queued on their own. Once the receiver
+ * seals the batch the next event opens a new one.
+ * <p>
+ * Other events cross the channel unchanged. Batches copy the id and
+ * timestamp of the events merged in, so a pooled x or y is not retained and
+ * goes back to its pool once the sender releases it.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class CoalescingChannel<P extends PortType> extends ChannelCoreImpl<P> {
+
+    private final int maxBatch;
+    //each direction is fed by the single component owning the sending port
+    private XYBatchEvent toPositive = null;
+    private XYBatchEvent toNegative = null;
+
+    CoalescingChannel(PortCore<P> positivePort, PortCore<P> negativePort, int maxBatch) {
+        super(positivePort, negativePort, negativePort.getPortType());
+        this.maxBatch = maxBatch;
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        if (batchable(event)) {
+            XYEvent single = (XYEvent) event;
+            if (toPositive != null && toPositive.append(single.getId(), single.getTimestamp())) {
+                return;
+            }
+            toPositive = open(single);
+            event = toPositive;
+        }
+        super.forwardToPositive(event, wid);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        if (batchable(event)) {
+            XYEvent single = (XYEvent) event;
+            if (toNegative != null && toNegative.append(single.getId(), single.getTimestamp())) {
+                return;
+            }
+            toNegative = open(single);
+            event = toNegative;
+        }
+        super.forwardToNegative(event, wid);
+    }
+
+    private static boolean batchable(KompicsEvent event) {
+        return event instanceof XEvent || event instanceof YEvent;
+    }
+
+    private XYBatchEvent open(XYEvent event) {
+        if (event instanceof XEvent) {
+            return new XBatchEvent(event.getId(), event.getTimestamp(), maxBatch);
+        } else {
+            return new YBatchEvent(event.getId(), event.getTimestamp(), maxBatch);
+        }
+    }
+}
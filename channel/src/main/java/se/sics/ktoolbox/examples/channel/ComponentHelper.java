@@ -18,16 +18,21 @@
  */
 package se.sics.ktoolbox.examples.channel;
 
+import java.io.File;
+import java.util.List;
 import se.sics.kompics.Channel;
 import se.sics.kompics.ChannelCore;
-import se.sics.kompics.ChannelCoreImpl;
 import se.sics.kompics.ChannelFilter;
+import se.sics.kompics.Handler;
 import se.sics.kompics.Negative;
 import se.sics.kompics.PortCore;
 import se.sics.kompics.PortType;
 import se.sics.kompics.Positive;
 
 /**
+ * A null filter leaves that side of the channel unfiltered. Every channel
+ * built here retains the pooled events it delivers, see {@link EventPool}.
+ *
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public class ComponentHelper {
@@ -36,18 +41,11 @@ public class ComponentHelper {
             Negative<P> negative, ChannelFilter<?, ?> negativeFilter) {
         PortCore<P> positivePort = (PortCore<P>) positive;
         PortCore<P> negativePort = (PortCore<P>) negative;
-        if (!positivePort.getPortType().hasPositive(positiveFilter.getEventType())) {
-            throw new RuntimeException("Port type " + positivePort.getPortType()
-                    + " has no positive " + positiveFilter.getEventType());
-        }
-        if (!negativePort.getPortType().hasNegative(negativeFilter.getEventType())) {
-            throw new RuntimeException("Port type " + negativePort.getPortType()
-                    + " has no negative " + negativeFilter.getEventType());
-        }
+        checkFilters(positivePort, positiveFilter, negativePort, negativeFilter);
 
-        ChannelCore<P> channel = new ChannelCoreImpl<P>(positivePort, negativePort, negativePort.getPortType());
-        positivePort.addChannel(channel, positiveFilter);
-        negativePort.addChannel(channel, negativeFilter);
+        ChannelCore<P> channel = new PooledChannel<P>(positivePort, negativePort);
+        addChannel(positivePort, channel, positiveFilter);
+        addChannel(negativePort, channel, negativeFilter);
         return channel;
     }
     
@@ -55,4 +53,302 @@ public class ComponentHelper {
             Positive<P> positive, ChannelFilter<?, ?> positiveFilter) {
        return connect(positive, positiveFilter, negative, negativeFilter);
    }
+
+    /**
+     * Like {@link #connect(Positive, ChannelFilter, Negative, ChannelFilter)}
+     * with both filters instrumented, see {@link FilterRegistry}. Unfiltered
+     * sides are not counted.
+     */
+    public static <P extends PortType> Channel<P> connect(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter, FilterRegistry registry) {
+        int channel = registry.nextChannel();
+        return connect(positive, instrument(registry, channel, "positive", positiveFilter),
+                negative, instrument(registry, channel, "negative", negativeFilter));
+    }
+
+    private static ChannelFilter<?, ?> instrument(FilterRegistry registry, int channel, String side, ChannelFilter<?, ?> filter) {
+        return filter == null ? null : registry.instrument(channel, side, filter);
+    }
+
+    /**
+     * Like {@link #connect(Positive, ChannelFilter, Negative, ChannelFilter)}
+     * and also pins the owners of both ports to the same worker of the
+     * affinity scheduler, see {@link AffinityScheduler}.
+     */
+    public static <P extends PortType> Channel<P> connect(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter, AffinityScheduler affinity) {
+        Channel<P> channel = connect(positive, positiveFilter, negative, negativeFilter);
+        affinity.pin(((PortCore<P>) positive).getOwner(), ((PortCore<P>) negative).getOwner());
+        return channel;
+    }
+
+    /**
+     * Like {@link #connect(Positive, ChannelFilter, Negative, ChannelFilter)}
+     * but x and y events are merged into batches of at most maxBatch ids, see
+     * {@link CoalescingChannel}. Filters still see the single events. The
+     * receivers have to subscribe {@link #unbatchX(Handler)} or
+     * {@link #unbatchY(Handler)} next to their single event handlers.
+     */
+    public static <P extends PortType> Channel<P> connectCoalescing(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter, int maxBatch) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        PortCore<P> negativePort = (PortCore<P>) negative;
+        checkFilters(positivePort, positiveFilter, negativePort, negativeFilter);
+
+        ChannelCore<P> channel = new CoalescingChannel<P>(positivePort, negativePort, maxBatch);
+        addChannel(positivePort, channel, positiveFilter);
+        addChannel(negativePort, channel, negativeFilter);
+        return channel;
+    }
+
+    /**
+     * Like {@link #connect(Positive, ChannelFilter, Negative, ChannelFilter)}
+     * for a channel with one sender per direction, x and y events are queued
+     * in the channel, see {@link SpscChannel}. The receivers have to subscribe
+     * {@link #drainX(Handler)} or {@link #drainY(Handler)} next to their
+     * single event handlers.
+     */
+    public static <P extends PortType> Channel<P> connectSpsc(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        PortCore<P> negativePort = (PortCore<P>) negative;
+        checkFilters(positivePort, positiveFilter, negativePort, negativeFilter);
+
+        ChannelCore<P> channel = new SpscChannel<P>(positivePort, negativePort);
+        addChannel(positivePort, channel, positiveFilter);
+        addChannel(negativePort, channel, negativeFilter);
+        return channel;
+    }
+
+    /**
+     * Like {@link #connectSpsc(Positive, ChannelFilter, Negative, ChannelFilter)}
+     * but only the latest x and y of each id wait for the receivers, see
+     * {@link ConflatingChannel}.
+     */
+    public static <P extends PortType> ConflatingChannel<P> connectConflating(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        PortCore<P> negativePort = (PortCore<P>) negative;
+        checkFilters(positivePort, positiveFilter, negativePort, negativeFilter);
+
+        ConflatingChannel<P> channel = new ConflatingChannel<P>(positivePort, negativePort);
+        addChannel(positivePort, channel, positiveFilter);
+        addChannel(negativePort, channel, negativeFilter);
+        return channel;
+    }
+
+    /**
+     * Same as {@link #connect(Positive, ChannelFilter, Negative, ChannelFilter)},
+     * which already retains pooled events.
+     */
+    public static <P extends PortType> Channel<P> connectPooled(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter) {
+        return connect(positive, positiveFilter, negative, negativeFilter);
+    }
+
+    /**
+     * Like {@link #connect(Positive, ChannelFilter, Negative, ChannelFilter)}
+     * with events delivered against the credits of the receiver, see
+     * {@link CreditWindow}. positiveWindow belongs to the owner of the
+     * positive port, negativeWindow to the owner of the negative port, null
+     * for no limit. The owners grant the credits back as they handle x and y.
+     * Pooled events are retained, see {@link EventPool}.
+     */
+    public static <P extends PortType> Channel<P> connectFlowControlled(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter, CreditWindow positiveWindow, CreditWindow negativeWindow) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        PortCore<P> negativePort = (PortCore<P>) negative;
+        checkFilters(positivePort, positiveFilter, negativePort, negativeFilter);
+
+        ChannelCore<P> channel = new FlowControlledChannel<P>(positivePort, negativePort, positiveWindow, negativeWindow);
+        addChannel(positivePort, channel, positiveFilter);
+        addChannel(negativePort, channel, negativeFilter);
+        return channel;
+    }
+
+    /**
+     * Like {@link #connect(Positive, ChannelFilter, Negative, ChannelFilter)}
+     * with every x and y delivered appended to the journal, see
+     * {@link JournalChannel} and {@link JournalReplayer}.
+     */
+    public static <P extends PortType> Channel<P> connectJournaled(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter, EventJournal journal) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        PortCore<P> negativePort = (PortCore<P>) negative;
+        checkFilters(positivePort, positiveFilter, negativePort, negativeFilter);
+
+        ChannelCore<P> channel = new JournalChannel<P>(positivePort, negativePort, journal);
+        addChannel(positivePort, channel, positiveFilter);
+        addChannel(negativePort, channel, negativeFilter);
+        return channel;
+    }
+
+    /**
+     * Unpacks x batches for a handler of single x events.
+     */
+    public static Handler<XBatchEvent> unbatchX(final Handler<XEvent> handler) {
+        return new Handler<XBatchEvent>() {
+            @Override
+            public void handle(XBatchEvent batch) {
+                int size = batch.seal();
+                for (int i = 0; i < size; i++) {
+                    handler.handle(new XEvent(batch.id(i), batch.timestamp(i)));
+                }
+            }
+        };
+    }
+
+    /**
+     * Unpacks y batches for a handler of single y events.
+     */
+    public static Handler<YBatchEvent> unbatchY(final Handler<YEvent> handler) {
+        return new Handler<YBatchEvent>() {
+            @Override
+            public void handle(YBatchEvent batch) {
+                int size = batch.seal();
+                for (int i = 0; i < size; i++) {
+                    handler.handle(new YEvent(batch.id(i), batch.timestamp(i)));
+                }
+            }
+        };
+    }
+
+    /**
+     * Hands the x events queued in a {@link SpscChannel} to a handler of
+     * single x events.
+     */
+    public static Handler<XDrainEvent> drainX(final Handler<XEvent> handler) {
+        return new Handler<XDrainEvent>() {
+            @Override
+            public void handle(XDrainEvent drain) {
+                drain.drain(handler);
+            }
+        };
+    }
+
+    /**
+     * Hands the y events queued in a {@link SpscChannel} to a handler of
+     * single y events.
+     */
+    public static Handler<YDrainEvent> drainY(final Handler<YEvent> handler) {
+        return new Handler<YDrainEvent>() {
+            @Override
+            public void handle(YDrainEvent drain) {
+                drain.drain(handler);
+            }
+        };
+    }
+
+    /**
+     * Installs a {@link KeyedRouter} on the positive port. Channels connected
+     * through the router with a positive {@link IdExtractor} are found by key
+     * instead of being evaluated one after the other.
+     */
+    public static <P extends PortType> KeyedRouter<P> keyedRouter(Positive<P> positive) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        KeyedRouter<P> router = new KeyedRouter<P>(positivePort);
+        positivePort.addChannel(router);
+        return router;
+    }
+
+    public static <P extends PortType> Channel<P> connect(KeyedRouter<P> router, ChannelFilter<?, ?> positiveFilter,
+            Negative<P> negative, ChannelFilter<?, ?> negativeFilter) {
+        PortCore<P> positivePort = router.getSource();
+        PortCore<P> negativePort = (PortCore<P>) negative;
+        checkFilters(positivePort, positiveFilter, negativePort, negativeFilter);
+
+        ChannelCore<P> channel = new PooledChannel<P>(positivePort, negativePort);
+        router.addRoute(channel, positiveFilter);
+        addChannel(negativePort, channel, negativeFilter);
+        return channel;
+    }
+
+    /**
+     * Installs a {@link MulticastGroup} on the positive port, every event
+     * triggered there goes to all the members that joined it.
+     */
+    public static <P extends PortType> MulticastGroup<P> multicastGroup(Positive<P> positive) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        MulticastGroup<P> group = new MulticastGroup<P>(positivePort);
+        positivePort.addChannel(group);
+        return group;
+    }
+
+    /**
+     * Installs a {@link ShardedGroup} on the positive port and adds the
+     * replicas to it in order, each x or y triggered there goes to the one
+     * replica its id hashes to.
+     */
+    public static <P extends PortType> ShardedGroup<P> connectSharded(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            List<Negative<P>> replicas, ChannelFilter<?, ?> replicaFilter) {
+        PortCore<P> positivePort = (PortCore<P>) positive;
+        checkFilters(positivePort, positiveFilter, positivePort, null);
+        ShardedGroup<P> group = new ShardedGroup<P>(positivePort);
+        for (Negative<P> replica : replicas) {
+            group.addShard(replica, replicaFilter);
+        }
+        addChannel(positivePort, group, positiveFilter);
+        return group;
+    }
+
+    /**
+     * Like {@link #connectSharded(Positive, ChannelFilter, List, ChannelFilter)}
+     * with both filters instrumented, see {@link FilterRegistry}. The replicas
+     * share the counters of their side.
+     */
+    public static <P extends PortType> ShardedGroup<P> connectSharded(Positive<P> positive, ChannelFilter<?, ?> positiveFilter,
+            List<Negative<P>> replicas, ChannelFilter<?, ?> replicaFilter, FilterRegistry registry) {
+        int channel = registry.nextChannel();
+        return connectSharded(positive, instrument(registry, channel, "positive", positiveFilter),
+                replicas, instrument(registry, channel, "negative", replicaFilter));
+    }
+
+    /**
+     * Bridges the positive port to a negative port in another JVM of the
+     * same host through memory mapped rings in dir, see
+     * {@link SharedMemoryBridge}. The other side connects with
+     * {@link #connectShared(Negative, File, String)} and the same dir and
+     * name.
+     *
+     * @param capacity bytes of each ring, a power of two
+     */
+    public static SharedMemoryBridge connectShared(Positive<XYPort> positive, File dir, String name, int capacity) {
+        PortCore<XYPort> positivePort = (PortCore<XYPort>) positive;
+        SharedMemoryBridge bridge = SharedMemoryBridge.positiveEnd(positivePort, dir, name, capacity);
+        positivePort.addChannel(bridge);
+        bridge.start();
+        return bridge;
+    }
+
+    /**
+     * Other side of {@link #connectShared(Positive, File, String, int)}, waits
+     * for it to create the rings.
+     */
+    public static SharedMemoryBridge connectShared(Negative<XYPort> negative, File dir, String name) {
+        PortCore<XYPort> negativePort = (PortCore<XYPort>) negative;
+        SharedMemoryBridge bridge = SharedMemoryBridge.negativeEnd(negativePort, dir, name);
+        negativePort.addChannel(bridge);
+        bridge.start();
+        return bridge;
+    }
+
+    static <P extends PortType> void checkFilters(PortCore<P> positivePort, ChannelFilter<?, ?> positiveFilter,
+            PortCore<P> negativePort, ChannelFilter<?, ?> negativeFilter) {
+        if (positiveFilter != null && !positivePort.getPortType().hasPositive(positiveFilter.getEventType())) {
+            throw new RuntimeException("Port type " + positivePort.getPortType()
+                    + " has no positive " + positiveFilter.getEventType());
+        }
+        if (negativeFilter != null && !negativePort.getPortType().hasNegative(negativeFilter.getEventType())) {
+            throw new RuntimeException("Port type " + negativePort.getPortType()
+                    + " has no negative " + negativeFilter.getEventType());
+        }
+    }
+
+    static <P extends PortType> void addChannel(PortCore<P> port, ChannelCore<P> channel, ChannelFilter<?, ?> filter) {
+        if (filter == null) {
+            port.addChannel(channel);
+        } else {
+            port.addChannel(channel, filter);
+        }
+    }
 }
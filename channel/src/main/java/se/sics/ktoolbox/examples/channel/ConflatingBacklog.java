@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Backlog holding at most one event per {@link XYEvent#getId()}, the key
+ * {@link IdExtractor} filters on. A newer event replaces the one waiting
+ * under its key and takes its place in line, so the backlog never grows past
+ * the number of keys and the receiver only sees the latest event of each key.
+ * Events are retained while they wait and a replaced event is released, see
+ * {@link EventPool}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+class ConflatingBacklog<E extends XYEvent> implements Backlog<E> {
+
+    private final LinkedHashMap<Integer, E> latest = new LinkedHashMap<>();
+    private volatile long conflated = 0;
+
+    @Override
+    public synchronized void offer(E event) {
+        event.retain();
+        E replaced = latest.put(event.getId(), event);
+        if (replaced != null) {
+            replaced.release();
+            conflated++;
+        }
+    }
+
+    @Override
+    public synchronized E poll() {
+        Iterator<E> it = latest.values().iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        E event = it.next();
+        it.remove();
+        return event;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return latest.isEmpty();
+    }
+
+    public synchronized int size() {
+        return latest.size();
+    }
+
+    /**
+     * @return events dropped because a newer one with the same key replaced
+     * them
+     */
+    public long conflated() {
+        return conflated;
+    }
+}
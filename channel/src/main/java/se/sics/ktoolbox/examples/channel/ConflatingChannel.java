@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * {@link SpscChannel} whose backlogs keep only the latest x and y of each id,
+ * see {@link ConflatingBacklog}. Meant for state updates where a newer event
+ * makes the older ones of its key stale: a receiver that falls behind is left
+ * with at most one event per key to handle instead of the whole backlog.
+ * Receivers subscribe the same drain handlers as for a {@link SpscChannel}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class ConflatingChannel<P extends PortType> extends SpscChannel<P> {
+
+    private final ConflatingBacklog<XEvent> xBacklog;
+    private final ConflatingBacklog<YEvent> yBacklog;
+
+    ConflatingChannel(PortCore<P> positivePort, PortCore<P> negativePort) {
+        this(positivePort, negativePort, new ConflatingBacklog<XEvent>(), new ConflatingBacklog<YEvent>());
+    }
+
+    private ConflatingChannel(PortCore<P> positivePort, PortCore<P> negativePort,
+            ConflatingBacklog<XEvent> xBacklog, ConflatingBacklog<YEvent> yBacklog) {
+        super(positivePort, negativePort, xBacklog, yBacklog);
+        this.xBacklog = xBacklog;
+        this.yBacklog = yBacklog;
+    }
+
+    /**
+     * @return x dropped for a newer x with the same id
+     */
+    public long conflatedX() {
+        return xBacklog.conflated();
+    }
+
+    /**
+     * @return y dropped for a newer y with the same id
+     */
+    public long conflatedY() {
+        return yBacklog.conflated();
+    }
+
+    /**
+     * @return x and y waiting for the receivers
+     */
+    public int backlog() {
+        return xBacklog.size() + yBacklog.size();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Credits of one receiving component, shared by all its incoming
+ * {@link FlowControlledChannel}s. Each x or y delivered to the receiver takes a
+ * credit and the receiver gives it back with {@link #grant(XYEvent)} once it
+ * has dequeued the event, so at most {@code credits} events wait in its queue.
+ * Events sent without credit are deferred, holding a reference if pooled, and
+ * delivered in order as credits come back. Once {@code highWatermark} events
+ * are deferred the listener hears that back-pressure is on, and that it is off
+ * again once they are all delivered. Senders that ignore it fill the deferred
+ * events up to {@code maxDeferred}, after which their triggers are refused.
+ * <p>
+ * One credit per delivered x or y: batches and other events pass uncounted.
+ * The window keeps the events it credited, so an event fanned out to several
+ * receivers takes a credit in each of their windows.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class CreditWindow {
+
+    private final AtomicInteger credits;
+    private final int highWatermark;
+    private final int maxDeferred;
+    private final FlowListener listener;
+    private final ArrayDeque<Deferred> deferred = new ArrayDeque<>();
+    //guarded by itself, credits taken per event not granted back yet
+    private final IdentityHashMap<XYEvent, Integer> credited = new IdentityHashMap<>();
+    private volatile boolean deferring = false;
+    private volatile boolean blocked = false;
+
+    public CreditWindow(int credits, int highWatermark, int maxDeferred, FlowListener listener) {
+        if (credits < 1 || highWatermark < 1 || maxDeferred < highWatermark) {
+            throw new RuntimeException("bad credit window credits:" + credits + " highWatermark:" + highWatermark
+                    + " maxDeferred:" + maxDeferred);
+        }
+        this.credits = new AtomicInteger(credits);
+        this.highWatermark = highWatermark;
+        this.maxDeferred = maxDeferred;
+        this.listener = listener;
+    }
+
+    public CreditWindow(int credits, int highWatermark, int maxDeferred) {
+        this(credits, highWatermark, maxDeferred, null);
+    }
+
+    /**
+     * Called with the reference the channel took on the event.
+     *
+     * @return true if the caller can deliver the event now, false if it was
+     * deferred along with that reference
+     * @throws RuntimeException if {@code maxDeferred} events are already
+     * deferred, the reference is released first
+     */
+    boolean acquire(FlowControlledChannel<?> channel, XYEvent event, boolean toPositive, int wid) {
+        if (!deferring && tryTake()) {
+            credit(event);
+            return true;
+        }
+        boolean pressure = false;
+        synchronized (deferred) {
+            if (deferred.isEmpty() && tryTake()) {
+                credit(event);
+                return true;
+            }
+            if (deferred.size() >= maxDeferred) {
+                event.release();
+                throw new RuntimeException("credit window full, deferred:" + maxDeferred + " refused:" + event);
+            }
+            credit(event);
+            deferred.addLast(new Deferred(channel, event, toPositive, wid));
+            deferring = true;
+            if (!blocked && deferred.size() >= highWatermark) {
+                blocked = true;
+                pressure = true;
+            }
+        }
+        if (pressure && listener != null) {
+            listener.pressure(this, true);
+        }
+        return false;
+    }
+
+    private void credit(XYEvent event) {
+        synchronized (credited) {
+            Integer taken = credited.get(event);
+            credited.put(event, taken == null ? 1 : taken + 1);
+        }
+    }
+
+    /**
+     * @return true if the event held a credit of this window, which it no
+     * longer does
+     */
+    private boolean uncredit(XYEvent event) {
+        synchronized (credited) {
+            Integer taken = credited.remove(event);
+            if (taken == null) {
+                return false;
+            }
+            if (taken > 1) {
+                credited.put(event, taken - 1);
+            }
+            return true;
+        }
+    }
+
+    private boolean tryTake() {
+        while (true) {
+            int current = credits.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (credits.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back the credit of an event delivered against this window, to be
+     * called by the receiver as it handles the event and before releasing
+     * it. A no-op for events that did not take a credit here. Hands the credit
+     * on to the oldest deferred event if there is one.
+     */
+    public void grant(XYEvent event) {
+        if (!uncredit(event)) {
+            return;
+        }
+        Deferred next;
+        boolean released = false;
+        synchronized (deferred) {
+            next = deferred.pollFirst();
+            if (next == null) {
+                credits.incrementAndGet();
+            } else if (deferred.isEmpty()) {
+                deferring = false;
+                released = blocked;
+                blocked = false;
+            }
+        }
+        if (next != null) {
+            next.channel.deliver(next.event, next.toPositive, next.wid);
+        }
+        if (released && listener != null) {
+            listener.pressure(this, false);
+        }
+    }
+
+    public int credits() {
+        return credits.get();
+    }
+
+    public int deferred() {
+        synchronized (deferred) {
+            return deferred.size();
+        }
+    }
+
+    /**
+     * @return true from when {@code highWatermark} events are deferred until
+     * all of them are delivered
+     */
+    public boolean isBlocked() {
+        return blocked;
+    }
+
+    private static class Deferred {
+
+        final FlowControlledChannel<?> channel;
+        final XYEvent event;
+        final boolean toPositive;
+        final int wid;
+
+        Deferred(FlowControlledChannel<?> channel, XYEvent event, boolean toPositive, int wid) {
+            this.channel = channel;
+            this.event = event;
+            this.toPositive = toPositive;
+            this.wid = wid;
+        }
+    }
+
+    /**
+     * Called on the thread of the sender when back-pressure starts, or of the
+     * receiver when it stops.
+     */
+    public static interface FlowListener {
+
+        public void pressure(CreditWindow window, boolean on);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * Append-only journal of x/y events in memory mapped segment files
+ * {@code <name>.<n>} of segmentSize bytes. Each record holds a sequence
+ * number, the {@link System#nanoTime()} it was appended at, the direction it
+ * travelled in and the {@link XYCodec} bytes of the event. A record that does
+ * not fit in the current segment starts the next one; the zero length left
+ * behind marks the end of a segment, or of the journal if there is no next
+ * segment. Read back with {@link Reader}.
+ * <p>
+ * Appends are serialized, the journal can be shared by many channels.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class EventJournal {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    /**
+     * length, sequence number, timestamp, direction
+     */
+    static final int RECORD_HEADER = 4 + 8 + 8 + 1;
+
+    private final File dir;
+    private final String name;
+    private final int segmentSize;
+    private int segment = -1;
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int position;
+    private long sequence = 0;
+
+    /**
+     * Starts a new journal, removing the segments of an older one with the
+     * same name.
+     */
+    public EventJournal(File dir, String name, int segmentSize) {
+        this.dir = dir;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        for (int i = 0; segmentFile(dir, name, i).exists(); i++) {
+            if (!segmentFile(dir, name, i).delete()) {
+                throw new RuntimeException("could not remove old segment:" + segmentFile(dir, name, i));
+            }
+        }
+        nextSegment();
+    }
+
+    public EventJournal(File dir, String name) {
+        this(dir, name, DEFAULT_SEGMENT_SIZE);
+    }
+
+    static File segmentFile(File dir, String name, int segment) {
+        return new File(dir, name + "." + segment);
+    }
+
+    private void nextSegment() {
+        try {
+            if (file != null) {
+                file.close();
+            }
+            segment++;
+            file = new RandomAccessFile(segmentFile(dir, name, segment), "rw");
+            file.setLength(segmentSize);
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.order(ByteOrder.nativeOrder());
+            position = 0;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * @return the sequence number of the record
+     */
+    public synchronized long append(KompicsEvent event, boolean toPositive) {
+        long timestamp = System.nanoTime();
+        int record = RECORD_HEADER + XYCodec.size(event);
+        if (record + 4 > segmentSize) {
+            throw new RuntimeException("event of " + record + " bytes too large for segments of " + segmentSize);
+        }
+        if (position + record + 4 > segmentSize) {
+            nextSegment();
+        }
+        XYCodec.write(event, buffer, position + RECORD_HEADER);
+        buffer.putLong(position + 4, sequence);
+        buffer.putLong(position + 12, timestamp);
+        buffer.put(position + 20, (byte) (toPositive ? 1 : 0));
+        buffer.putInt(position, record);
+        position += record;
+        return sequence++;
+    }
+
+    public synchronized long size() {
+        return sequence;
+    }
+
+    public synchronized void close() {
+        try {
+            buffer.force();
+            file.close();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Reads a closed journal from its first record.
+     */
+    public static class Reader {
+
+        private final File dir;
+        private final String name;
+        private int segment = -1;
+        private MappedByteBuffer buffer;
+        private int position;
+        private int eventAt;
+
+        public long sequence;
+        public long timestamp;
+        public boolean toPositive;
+
+        public Reader(File dir, String name) {
+            this.dir = dir;
+            this.name = name;
+            if (!openNext()) {
+                throw new RuntimeException("no journal:" + name + " in " + dir);
+            }
+        }
+
+        private boolean openNext() {
+            File next = segmentFile(dir, name, segment + 1);
+            if (!next.exists()) {
+                return false;
+            }
+            try (RandomAccessFile file = new RandomAccessFile(next, "r")) {
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                buffer.order(ByteOrder.nativeOrder());
+            } catch (IOException ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+            segment++;
+            position = 0;
+            return true;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return false at the end of the journal
+         */
+        public boolean next() {
+            while (true) {
+                int record = (position + 4 <= buffer.capacity() ? buffer.getInt(position) : 0);
+                if (record > 0) {
+                    sequence = buffer.getLong(position + 4);
+                    timestamp = buffer.getLong(position + 12);
+                    toPositive = buffer.get(position + 20) == 1;
+                    eventAt = position + RECORD_HEADER;
+                    position += record;
+                    return true;
+                }
+                if (!openNext()) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * @return the event of the current record as recorded, its timestamps
+         * from the recording process
+         */
+        public XYEvent event() {
+            return XYCodec.read(buffer, eventAt);
+        }
+
+        /**
+         * @return the event of the current record stamped with timestamp, for
+         * latencies measured in this process
+         */
+        public XYEvent event(long timestamp) {
+            return XYCodec.read(buffer, eventAt, timestamp);
+        }
+    }
+}
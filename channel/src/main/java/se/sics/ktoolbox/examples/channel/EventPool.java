@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recycles x or y events once every channel that delivered them had the event
+ * released by its receiver, see {@link XYEvent}. Every channel carrying pooled
+ * events has to retain them, i.e. be built with
+ * channels built by {@link ComponentHelper}, {@link KeyedRouter},
+ * {@link MulticastGroup} and {@link ShardedGroup} all do, and every receiver
+ * has to release them once per delivery.
+ * <p>
+ * Acquire and recycle happen on different workers, hence the lock. The free
+ * list is an array deque, so neither side allocates once the pool is warm.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public abstract class EventPool<E extends XYEvent> {
+
+    private final Class<E> type;
+    private final int capacity;
+    private final ArrayDeque<E> free;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong recycled = new AtomicLong();
+
+    public EventPool(Class<E> type, int capacity) {
+        this.type = type;
+        this.capacity = capacity;
+        this.free = new ArrayDeque<>(capacity);
+    }
+
+    protected abstract E create(int id);
+
+    /**
+     * @return an event holding the caller's reference, to be released once
+     * the event is triggered
+     */
+    public E acquire(int id) {
+        E event;
+        synchronized (free) {
+            event = free.pollLast();
+        }
+        if (event == null) {
+            event = create(id);
+            event.pool = this;
+            created.incrementAndGet();
+        }
+        event.reset(id);
+        return event;
+    }
+
+    static <E extends XYEvent> void recycle(EventPool<E> pool, XYEvent event) {
+        pool.recycle(pool.type.cast(event));
+    }
+
+    void recycle(E event) {
+        recycled.incrementAndGet();
+        synchronized (free) {
+            if (free.size() < capacity) {
+                free.addLast(event);
+            }
+        }
+    }
+
+    /**
+     * events allocated so far, flat once the pool covers the events in flight
+     */
+    public long created() {
+        return created.get();
+    }
+
+    public long recycled() {
+        return recycled.get();
+    }
+
+    public static EventPool<XEvent> xPool(int capacity) {
+        return new EventPool<XEvent>(XEvent.class, capacity) {
+            @Override
+            protected XEvent create(int id) {
+                return new XEvent(id);
+            }
+        };
+    }
+
+    public static EventPool<YEvent> yPool(int capacity) {
+        return new EventPool<YEvent>(YEvent.class, capacity) {
+            @Override
+            protected YEvent create(int id) {
+                return new YEvent(id);
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.kompics.ChannelFilter;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * Keeps the stats of the filters instrumented by
+ * {@link ComponentHelper#connect(se.sics.kompics.Positive, ChannelFilter, se.sics.kompics.Negative, ChannelFilter, FilterRegistry)}.
+ * Each channel gets a number, each of its filters is registered as a
+ * {@link FilterStatsMXBean} under {@value #DOMAIN} when jmx is on, named by
+ * its {@link Object#toString()} and keyed by registry, so several registries
+ * can share the mbean server. Snapshots
+ * can be taken on demand or delivered periodically as deltas over the period.
+ * Every evaluation is counted, one in {@code timingSampling} is timed, see
+ * {@link InstrumentedFilter}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class FilterRegistry {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FilterRegistry.class);
+    public static final String DOMAIN = "se.sics.ktoolbox.examples.channel";
+    public static final int DEFAULT_TIMING_SAMPLING = 64;
+
+    private static final AtomicInteger REGISTRIES = new AtomicInteger();
+
+    private final int id = REGISTRIES.getAndIncrement();
+    private final boolean jmx;
+    private final int timingSampling;
+    private final AtomicInteger channels = new AtomicInteger();
+    private final List<FilterStats> stats = new CopyOnWriteArrayList<>();
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService snapshots;
+
+    public FilterRegistry(boolean jmx) {
+        this(jmx, DEFAULT_TIMING_SAMPLING);
+    }
+
+    /**
+     * @param timingSampling power of two, 0 to count without timing
+     */
+    public FilterRegistry(boolean jmx, int timingSampling) {
+        if (timingSampling < 0 || Integer.bitCount(timingSampling) > 1) {
+            throw new RuntimeException("bad timing sampling:" + timingSampling);
+        }
+        this.jmx = jmx;
+        this.timingSampling = timingSampling;
+    }
+
+    int nextChannel() {
+        return channels.getAndIncrement();
+    }
+
+    <E extends KompicsEvent, F> ChannelFilter<E, F> instrument(int channel, String side, ChannelFilter<E, F> filter) {
+        FilterStats filterStats = new FilterStats(channel, side, filter.toString());
+        stats.add(filterStats);
+        if (jmx) {
+            register(filterStats);
+        }
+        return new InstrumentedFilter<>(filter, filterStats, timingSampling);
+    }
+
+    private void register(FilterStats filterStats) {
+        Hashtable<String, String> properties = new Hashtable<>();
+        properties.put("type", "ChannelFilter");
+        properties.put("registry", String.valueOf(id));
+        properties.put("channel", String.valueOf(filterStats.getChannel()));
+        properties.put("side", filterStats.getSide());
+        properties.put("filter", ObjectName.quote(filterStats.getFilter()));
+        try {
+            ObjectName name = new ObjectName(DOMAIN, properties);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(filterStats, name);
+            registered.add(name);
+        } catch (JMException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    public List<FilterSnapshot> snapshot() {
+        List<FilterSnapshot> result = new ArrayList<>(stats.size());
+        for (FilterStats filterStats : stats) {
+            result.add(filterStats.snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * Delivers, every period, what each filter did since the previous
+     * delivery. The listener runs on a registry thread.
+     */
+    public synchronized void startSnapshots(long periodMs, final SnapshotListener listener) {
+        if (snapshots != null) {
+            throw new RuntimeException("snapshots already started");
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "filter-snapshots");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        snapshots.scheduleAtFixedRate(new Runnable() {
+            private final Map<FilterStats, FilterSnapshot> previous = new HashMap<>();
+
+            @Override
+            public void run() {
+                List<FilterSnapshot> deltas = new ArrayList<>(stats.size());
+                for (FilterStats filterStats : stats) {
+                    FilterSnapshot current = filterStats.snapshot();
+                    deltas.add(current.since(previous.put(filterStats, current)));
+                }
+                try {
+                    listener.snapshot(deltas);
+                } catch (RuntimeException ex) {
+                    LOG.warn("snapshot listener failed", ex);
+                }
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic snapshots and removes the jmx beans.
+     */
+    public synchronized void close() {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+            snapshots = null;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                LOG.warn("could not unregister:{}", name);
+            }
+        }
+        registered.clear();
+    }
+
+    public static interface SnapshotListener {
+
+        public void snapshot(List<FilterSnapshot> deltas);
+    }
+}
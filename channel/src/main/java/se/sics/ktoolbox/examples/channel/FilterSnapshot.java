@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+/**
+ * Counters of one instrumented channel filter at a point in time, or over a
+ * period when built by {@link #since(FilterSnapshot)}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class FilterSnapshot {
+
+    public final int channel;
+    public final String side;
+    public final String filter;
+    public final long accepted;
+    public final long rejected;
+    public final long timed;
+    /**
+     * over the timed evaluations only
+     */
+    public final long evaluationNanos;
+
+    public FilterSnapshot(int channel, String side, String filter, long accepted, long rejected, long timed,
+            long evaluationNanos) {
+        this.channel = channel;
+        this.side = side;
+        this.filter = filter;
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.timed = timed;
+        this.evaluationNanos = evaluationNanos;
+    }
+
+    public long evaluations() {
+        return accepted + rejected;
+    }
+
+    public double meanEvaluationNanos() {
+        return timed == 0 ? 0 : (double) evaluationNanos / timed;
+    }
+
+    /**
+     * @param previous an earlier snapshot of the same filter, or null
+     */
+    public FilterSnapshot since(FilterSnapshot previous) {
+        if (previous == null) {
+            return this;
+        }
+        return new FilterSnapshot(channel, side, filter, accepted - previous.accepted,
+                rejected - previous.rejected, timed - previous.timed, evaluationNanos - previous.evaluationNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("channel:%d %s %s accepted:%d rejected:%d mean eval:%.1fns",
+                channel, side, filter, accepted, rejected, meanEvaluationNanos());
+    }
+}
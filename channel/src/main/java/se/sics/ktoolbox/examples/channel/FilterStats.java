@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of one instrumented channel filter.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class FilterStats implements FilterStatsMXBean {
+
+    private final int channel;
+    private final String side;
+    private final String filter;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timed = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    FilterStats(int channel, String side, String filter) {
+        this.channel = channel;
+        this.side = side;
+        this.filter = filter;
+    }
+
+    void record(boolean accept) {
+        if (accept) {
+            accepted.incrementAndGet();
+        } else {
+            rejected.incrementAndGet();
+        }
+    }
+
+    void recordTime(long evaluationNanos) {
+        timed.incrementAndGet();
+        nanos.addAndGet(evaluationNanos);
+    }
+
+    @Override
+    public int getChannel() {
+        return channel;
+    }
+
+    @Override
+    public String getSide() {
+        return side;
+    }
+
+    @Override
+    public String getFilter() {
+        return filter;
+    }
+
+    @Override
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public long getTimedEvaluations() {
+        return timed.get();
+    }
+
+    @Override
+    public long getEvaluationNanos() {
+        return nanos.get();
+    }
+
+    @Override
+    public double getMeanEvaluationNanos() {
+        return snapshot().meanEvaluationNanos();
+    }
+
+    public FilterSnapshot snapshot() {
+        return new FilterSnapshot(channel, side, filter, accepted.get(), rejected.get(), timed.get(), nanos.get());
+    }
+}
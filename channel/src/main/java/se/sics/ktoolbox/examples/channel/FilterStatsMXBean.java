@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+/**
+ * JMX view of one instrumented channel filter, see {@link FilterRegistry}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public interface FilterStatsMXBean {
+
+    public int getChannel();
+
+    /**
+     * @return positive or negative, the port side the filter is on
+     */
+    public String getSide();
+
+    public String getFilter();
+
+    public long getAccepted();
+
+    public long getRejected();
+
+    /**
+     * @return evaluations sampled for timing
+     */
+    public long getTimedEvaluations();
+
+    /**
+     * @return time spent in the timed evaluations
+     */
+    public long getEvaluationNanos();
+
+    public double getMeanEvaluationNanos();
+}
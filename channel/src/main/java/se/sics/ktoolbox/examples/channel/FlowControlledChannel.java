@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Channel delivering x and y only against the credits of the receiving
+ * component, see {@link CreditWindow}. A null window leaves that direction
+ * unlimited. Takes a reference on the pooled events it delivers, like
+ * {@link PooledChannel}, which deferred events keep until delivered. A
+ * trigger a full window refuses throws back at the sender.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class FlowControlledChannel<P extends PortType> extends ChannelCoreImpl<P> {
+
+    private final CreditWindow positiveWindow;
+    private final CreditWindow negativeWindow;
+
+    FlowControlledChannel(PortCore<P> positivePort, PortCore<P> negativePort,
+            CreditWindow positiveWindow, CreditWindow negativeWindow) {
+        super(positivePort, negativePort, negativePort.getPortType());
+        this.positiveWindow = positiveWindow;
+        this.negativeWindow = negativeWindow;
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        if (event instanceof XYEvent) {
+            XYEvent xy = (XYEvent) event;
+            xy.retain();
+            if (positiveWindow != null && !positiveWindow.acquire(this, xy, true, wid)) {
+                return;
+            }
+        }
+        super.forwardToPositive(event, wid);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        if (event instanceof XYEvent) {
+            XYEvent xy = (XYEvent) event;
+            xy.retain();
+            if (negativeWindow != null && !negativeWindow.acquire(this, xy, false, wid)) {
+                return;
+            }
+        }
+        super.forwardToNegative(event, wid);
+    }
+
+    /**
+     * Delivers a deferred event, its credit and reference already taken.
+     */
+    void deliver(XYEvent event, boolean toPositive, int wid) {
+        if (toPositive) {
+            super.forwardToPositive(event, wid);
+        } else {
+            super.forwardToNegative(event, wid);
+        }
+    }
+}
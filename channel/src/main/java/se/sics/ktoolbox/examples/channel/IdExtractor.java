@@ -32,6 +32,11 @@ public class IdExtractor<E extends XYEvent>  extends ChannelFilter<E, Integer> {
 
     @Override
     public Integer getValue(E event) {
-        return event.id;
+        return event.getId();
+    }
+
+    @Override
+    public String toString() {
+        return (isPositive() ? "+id " : "-id ") + getValue() + " " + getEventType().getSimpleName();
     }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable set of ids built from ranges and single ids with exclusions.
+ * Included and excluded ranges are merged into sorted disjoint intervals when
+ * built. Sets spanning at most {@link #DENSE_SPAN} ids are then kept as a
+ * bitset, wider ones are searched as intervals.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class IdSet {
+
+    public static final int DENSE_SPAN = 1 << 16;
+
+    private final int[] starts;
+    private final int[] ends;
+    private final int offset;
+    private final long span;
+    private final BitSet dense;
+
+    private IdSet(int[] starts, int[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+        if (starts.length > 0 && (long) ends[ends.length - 1] - starts[0] < DENSE_SPAN) {
+            offset = starts[0];
+            span = ends[ends.length - 1] - offset + 1;
+            dense = new BitSet((int) span);
+            for (int i = 0; i < starts.length; i++) {
+                dense.set(starts[i] - offset, ends[i] - offset + 1);
+            }
+        } else {
+            offset = 0;
+            span = 0;
+            dense = null;
+        }
+    }
+
+    public boolean contains(int id) {
+        if (dense != null) {
+            long bit = (long) id - offset;
+            return bit >= 0 && bit < span && dense.get((int) bit);
+        }
+        int i = Arrays.binarySearch(starts, id);
+        if (i >= 0) {
+            return true;
+        }
+        int before = -i - 2;
+        return before >= 0 && id <= ends[before];
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public long size() {
+        long size = 0;
+        for (int i = 0; i < starts.length; i++) {
+            size += (long) ends[i] - starts[i] + 1;
+        }
+        return size;
+    }
+
+    public boolean isDense() {
+        return dense != null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < starts.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(starts[i]);
+            if (ends[i] != starts[i]) {
+                sb.append("..").append(ends[i]);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final List<int[]> included = new ArrayList<>();
+        private final List<int[]> excluded = new ArrayList<>();
+
+        public Builder add(int id) {
+            return add(id, id);
+        }
+
+        /**
+         * @param from inclusive
+         * @param to inclusive
+         */
+        public Builder add(int from, int to) {
+            included.add(range(from, to));
+            return this;
+        }
+
+        public Builder exclude(int id) {
+            return exclude(id, id);
+        }
+
+        public Builder exclude(int from, int to) {
+            excluded.add(range(from, to));
+            return this;
+        }
+
+        public IdSet build() {
+            List<int[]> in = merge(included);
+            List<int[]> out = merge(excluded);
+            List<int[]> result = new ArrayList<>();
+            int j = 0;
+            for (int[] range : in) {
+                long start = range[0];
+                while (j < out.size() && out.get(j)[1] < start) {
+                    j++;
+                }
+                int k = j;
+                while (start <= range[1] && k < out.size() && out.get(k)[0] <= range[1]) {
+                    if (out.get(k)[0] > start) {
+                        result.add(new int[]{(int) start, out.get(k)[0] - 1});
+                    }
+                    start = (long) out.get(k)[1] + 1;
+                    k++;
+                }
+                if (start <= range[1]) {
+                    result.add(new int[]{(int) start, range[1]});
+                }
+            }
+            int[] starts = new int[result.size()];
+            int[] ends = new int[result.size()];
+            for (int i = 0; i < result.size(); i++) {
+                starts[i] = result.get(i)[0];
+                ends[i] = result.get(i)[1];
+            }
+            return new IdSet(starts, ends);
+        }
+
+        private static int[] range(int from, int to) {
+            if (from > to) {
+                throw new RuntimeException("bad range:" + from + ".." + to);
+            }
+            return new int[]{from, to};
+        }
+
+        private static List<int[]> merge(List<int[]> ranges) {
+            List<int[]> sorted = new ArrayList<>(ranges);
+            Collections.sort(sorted, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] o1, int[] o2) {
+                    return Integer.compare(o1[0], o2[0]);
+                }
+            });
+            List<int[]> merged = new ArrayList<>();
+            for (int[] range : sorted) {
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && (long) range[0] <= (long) last[1] + 1) {
+                    last[1] = Math.max(last[1], range[1]);
+                } else {
+                    merged.add(new int[]{range[0], range[1]});
+                }
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.ChannelFilter;
+
+/**
+ * Passes x or y events whose id is in an {@link IdSet}, so one channel can
+ * cover ranges and sets of ids where {@link IdExtractor} covers one. The
+ * filter value is always TRUE and the filter positive: exclusions belong in
+ * the set.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class IdSetFilter<E extends XYEvent> extends ChannelFilter<E, Boolean> {
+
+    private final IdSet ids;
+
+    public IdSetFilter(IdSet ids, Class<E> eventType) {
+        super(eventType, Boolean.TRUE, true);
+        this.ids = ids;
+    }
+
+    @Override
+    public Boolean getValue(E event) {
+        return ids.contains(event.getId());
+    }
+
+    public IdSet getIds() {
+        return ids;
+    }
+
+    @Override
+    public String toString() {
+        return "+ids " + ids + " " + getEventType().getSimpleName();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.ChannelFilter;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * Wraps a filter and counts how many events it accepts and rejects. Reading
+ * the clock costs about as much as a simple filter, so only one evaluation in
+ * {@code sampling} is timed, none with a sampling of 0. The sampling counter
+ * is not synchronized, racing workers only shift which evaluations get timed.
+ * Kompics keeps using the value and polarity of the wrapped filter, so the
+ * channel behaves the same.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class InstrumentedFilter<E extends KompicsEvent, F> extends ChannelFilter<E, F> {
+
+    private final ChannelFilter<E, F> filter;
+    private final FilterStats stats;
+    //sampling - 1, -1 for no timing
+    private final int sampleMask;
+    private int evaluations = 0;
+
+    /**
+     * @param sampling power of two, 0 for no timing
+     */
+    public InstrumentedFilter(ChannelFilter<E, F> filter, FilterStats stats, int sampling) {
+        super(filter.getEventType(), filter.getValue(), filter.isPositive());
+        if (sampling < 0 || Integer.bitCount(sampling) > 1) {
+            throw new RuntimeException("bad timing sampling:" + sampling);
+        }
+        this.filter = filter;
+        this.stats = stats;
+        this.sampleMask = sampling - 1;
+    }
+
+    @Override
+    public F getValue(E event) {
+        if (sampleMask >= 0 && (evaluations++ & sampleMask) == 0) {
+            long start = System.nanoTime();
+            F value = filter.getValue(event);
+            boolean match = getValue().equals(value);
+            long nanos = System.nanoTime() - start;
+            stats.record(match == isPositive());
+            stats.recordTime(nanos);
+            return value;
+        }
+        F value = filter.getValue(event);
+        stats.record(getValue().equals(value) == isPositive());
+        return value;
+    }
+
+    public ChannelFilter<E, F> getFilter() {
+        return filter;
+    }
+
+    public FilterStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return filter.toString();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Channel appending every x/y event it delivers to an {@link EventJournal}.
+ * Other events pass unrecorded. Pooled events are retained like on a
+ * {@link PooledChannel}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class JournalChannel<P extends PortType> extends PooledChannel<P> {
+
+    private final EventJournal journal;
+
+    JournalChannel(PortCore<P> positivePort, PortCore<P> negativePort, EventJournal journal) {
+        super(positivePort, negativePort);
+        this.journal = journal;
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        if (event instanceof XYEvent) {
+            journal.append(event, true);
+        }
+        super.forwardToPositive(event, wid);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        if (event instanceof XYEvent) {
+            journal.append(event, false);
+        }
+        super.forwardToNegative(event, wid);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.Negative;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.Positive;
+
+/**
+ * Feeds an {@link EventJournal} back into components from its own thread.
+ * Records of x travelling to a negative port go to the port given to
+ * {@link #into(Negative)}, records of y travelling to a positive port to the
+ * one given to {@link #into(Positive)}; records with no port are skipped.
+ * What the fed components trigger back towards the replayer is dropped.
+ * <p>
+ * At recorded speed each event is delivered at its recorded offset from the
+ * first record, parking for long gaps and spinning for short ones.
+ * Otherwise events are delivered as fast as the thread can decode them.
+ * Either way the recorded timestamps only pace the replay: events are stamped
+ * as they are delivered, so hop latencies measured by the components fed are
+ * those of this run.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class JournalReplayer {
+
+    private static final long SPIN_NANOS = 50000;
+    /**
+     * delivered from the replay thread, which is not a kompics worker
+     */
+    private static final int NO_WORKER = -1;
+
+    private final File dir;
+    private final String name;
+    private final boolean recordedSpeed;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private ReplayChannel toNegative;
+    private ReplayChannel toPositive;
+    private volatile long replayed = 0;
+
+    public JournalReplayer(File dir, String name, boolean recordedSpeed) {
+        this.dir = dir;
+        this.name = name;
+        this.recordedSpeed = recordedSpeed;
+    }
+
+    public JournalReplayer into(Negative<XYPort> negative) {
+        PortCore<XYPort> port = (PortCore<XYPort>) negative;
+        toNegative = new ReplayChannel(port);
+        port.addChannel(toNegative);
+        return this;
+    }
+
+    public JournalReplayer into(Positive<XYPort> positive) {
+        PortCore<XYPort> port = (PortCore<XYPort>) positive;
+        toPositive = new ReplayChannel(port);
+        port.addChannel(toPositive);
+        return this;
+    }
+
+    /**
+     * Starts replaying once the components fed are started.
+     */
+    public void start() {
+        Thread replay = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    replay();
+                } finally {
+                    done.countDown();
+                }
+            }
+        }, "journal-replay-" + name);
+        replay.setDaemon(true);
+        replay.start();
+    }
+
+    private void replay() {
+        EventJournal.Reader reader = new EventJournal.Reader(dir, name);
+        long first = -1;
+        long start = System.nanoTime();
+        long count = 0;
+        while (reader.next()) {
+            ReplayChannel target = (reader.toPositive ? toPositive : toNegative);
+            if (target == null) {
+                continue;
+            }
+            if (recordedSpeed) {
+                if (first == -1) {
+                    first = reader.timestamp;
+                }
+                waitUntil(start + reader.timestamp - first);
+            }
+            target.deliver(reader.event(System.nanoTime()), reader.toPositive);
+            replayed = ++count;
+        }
+    }
+
+    private static void waitUntil(long deadline) {
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            if (left > SPIN_NANOS) {
+                LockSupport.parkNanos(left - SPIN_NANOS);
+            }
+        }
+    }
+
+    public void await() throws InterruptedException {
+        done.await();
+    }
+
+    public long replayed() {
+        return replayed;
+    }
+
+    private static class ReplayChannel extends ChannelCoreImpl<XYPort> {
+
+        ReplayChannel(PortCore<XYPort> port) {
+            super(port, port, port.getPortType());
+        }
+
+        void deliver(KompicsEvent event, boolean toPositive) {
+            if (toPositive) {
+                super.forwardToPositive(event, NO_WORKER);
+            } else {
+                super.forwardToNegative(event, NO_WORKER);
+            }
+        }
+
+        @Override
+        public void forwardToPositive(KompicsEvent event, int wid) {
+        }
+
+        @Override
+        public void forwardToNegative(KompicsEvent event, int wid) {
+        }
+    }
+}
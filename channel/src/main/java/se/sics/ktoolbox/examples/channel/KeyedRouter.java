@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import se.sics.kompics.ChannelCore;
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.ChannelFilter;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Single channel on a positive port that hands each event to the channels
+ * registered under its {@link XYEvent#getId()}. The port sees one unfiltered
+ * channel, so a trigger costs one hash probe instead of one filter evaluation
+ * per connected channel. An indexed channel only gets the events of the type
+ * its filter is for, as the port would decide.
+ * <p>
+ * Only positive {@link IdExtractor} filters can be indexed. Any other filter
+ * is kept in a list and evaluated the way the port would, and channels
+ * without a filter receive every event.
+ * <p>
+ * Route channels retain pooled events both ways, see {@link EventPool}.
+ * <p>
+ * Routes are wired into tables only the wiring side touches, growing in
+ * place. The first trigger after a change publishes a copy, which triggers
+ * read without locking, so wiring n channels costs one copy, not n.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class KeyedRouter<P extends PortType> extends ChannelCoreImpl<P> {
+
+    private static final int EMPTY = 0;
+    private static final int USED = 1;
+
+    private final PortCore<P> source;
+    private final Object wiringLock = new Object();
+    //guarded by wiringLock
+    private final Table wiredTable = new Table(16);
+    private final List<Route> wiredScanned = new ArrayList<>();
+
+    private volatile Table table = new Table(16);
+    private volatile Route[] scanned = new Route[0];
+    private volatile boolean stale = false;
+
+    KeyedRouter(PortCore<P> source) {
+        super(source, source, source.getPortType());
+        this.source = source;
+    }
+
+    PortCore<P> getSource() {
+        return source;
+    }
+
+    void addRoute(ChannelCore<P> channel, ChannelFilter<?, ?> filter) {
+        synchronized (wiringLock) {
+            Route route = new Route(channel, filter);
+            if (filter instanceof IdExtractor && filter.isPositive()) {
+                wiredTable.add((Integer) filter.getValue(), route);
+            } else {
+                wiredScanned.add(route);
+            }
+            stale = true;
+        }
+    }
+
+    public int keys() {
+        synchronized (wiringLock) {
+            return wiredTable.size;
+        }
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        route(event, wid, true);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        route(event, wid, false);
+    }
+
+    private void publish() {
+        synchronized (wiringLock) {
+            if (stale) {
+                table = wiredTable.copy();
+                scanned = wiredScanned.toArray(new Route[wiredScanned.size()]);
+                stale = false;
+            }
+        }
+    }
+
+    private void route(KompicsEvent event, int wid, boolean toPositive) {
+        if (stale) {
+            publish();
+        }
+        if (event instanceof XYEvent) {
+            Route[] targets = table.get(((XYEvent) event).getId());
+            if (targets != null) {
+                for (int i = 0; i < targets.length; i++) {
+                    if (targets[i].filter.getEventType().isInstance(event)) {
+                        forward(targets[i].channel, event, wid, toPositive);
+                    }
+                }
+            }
+        }
+        Route[] routes = scanned;
+        for (int i = 0; i < routes.length; i++) {
+            if (routes[i].accepts(event)) {
+                forward(routes[i].channel, event, wid, toPositive);
+            }
+        }
+    }
+
+    private static void forward(ChannelCore<?> channel, KompicsEvent event, int wid, boolean toPositive) {
+        if (toPositive) {
+            channel.forwardToPositive(event, wid);
+        } else {
+            channel.forwardToNegative(event, wid);
+        }
+    }
+
+    private static class Route {
+
+        final ChannelCore<?> channel;
+        final ChannelFilter filter;
+
+        Route(ChannelCore<?> channel, ChannelFilter<?, ?> filter) {
+            this.channel = channel;
+            this.filter = filter;
+        }
+
+        boolean accepts(KompicsEvent event) {
+            if (filter == null) {
+                return true;
+            }
+            if (!filter.getEventType().isInstance(event)) {
+                return false;
+            }
+            return filter.isPositive() == filter.getValue().equals(filter.getValue(event));
+        }
+    }
+
+    /**
+     * Open addressing int to routes table. The wiring copy grows in place,
+     * published copies are never modified.
+     */
+    private static class Table {
+
+        int[] keys;
+        byte[] state;
+        Route[][] routes;
+        int mask;
+        int size;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            state = new byte[capacity];
+            routes = new Route[capacity][];
+            mask = capacity - 1;
+        }
+
+        Route[] get(int key) {
+            int slot = mix(key) & mask;
+            while (state[slot] == USED) {
+                if (keys[slot] == key) {
+                    return routes[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        void add(int key, Route route) {
+            Route[] current = get(key);
+            if (current == null) {
+                if ((size + 1) * 2 > keys.length) {
+                    rehash(keys.length * 2);
+                }
+                put(key, new Route[]{route});
+            } else {
+                Route[] extended = Arrays.copyOf(current, current.length + 1);
+                extended[current.length] = route;
+                put(key, extended);
+            }
+        }
+
+        Table copy() {
+            Table copy = new Table(keys.length);
+            System.arraycopy(keys, 0, copy.keys, 0, keys.length);
+            System.arraycopy(state, 0, copy.state, 0, state.length);
+            System.arraycopy(routes, 0, copy.routes, 0, routes.length);
+            copy.size = size;
+            return copy;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            byte[] oldState = state;
+            Route[][] oldRoutes = routes;
+            keys = new int[capacity];
+            state = new byte[capacity];
+            routes = new Route[capacity][];
+            mask = capacity - 1;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldState[i] == USED) {
+                    put(oldKeys[i], oldRoutes[i]);
+                }
+            }
+        }
+
+        private void put(int key, Route[] value) {
+            int slot = mix(key) & mask;
+            while (state[slot] == USED && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (state[slot] == EMPTY) {
+                size++;
+            }
+            keys[slot] = key;
+            state[slot] = USED;
+            routes[slot] = value;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -1,47 +1,135 @@
 package se.sics.ktoolbox.examples.channel;
 
+import com.typesafe.config.ConfigFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import se.sics.kompics.Component;
 import se.sics.kompics.ComponentDefinition;
+import se.sics.kompics.Init;
 import se.sics.kompics.Kompics;
+import se.sics.kompics.Negative;
 import se.sics.ktoolbox.examples.channel.AComp.AInit;
 import se.sics.ktoolbox.examples.channel.BComp.BInit;
+import se.sics.ktoolbox.examples.channel.LoadConfig.ChannelSpec;
 
 /**
- * Hello world!
- *
+ * Load generator over the x/y ping-pong. The number of A and B components, the
+ * filter matrix between them and when the run ends come from the launcher
+ * section of the config. With shards above 1 every B is a group of replicas
+ * behind a {@link ShardedGroup}. The run ends with events/s and hop latency
+ * percentiles, measured from the timestamps the events carry.
  */
 public class Launcher extends ComponentDefinition {
 
-    public Launcher() {
-        Component a1 = create(AComp.class, new AInit(0));
-        Component a2 = create(AComp.class, new AInit(2));
-        Component b1 = create(BComp.class, new BInit(1));
-        Component b2 = create(BComp.class, new BInit(3));
-
-        ComponentHelper.connect(a1.getPositive(XYPort.class), new IdExtractor(0, true, XEvent.class),
-                b1.getNegative(XYPort.class), new IdExtractor(7, false, YEvent.class));
-        ComponentHelper.connect(a1.getPositive(XYPort.class), new IdExtractor(4, true, XEvent.class),
-                b2.getNegative(XYPort.class), new IdExtractor(3, false, YEvent.class));
-        ComponentHelper.connect(a2.getPositive(XYPort.class), new IdExtractor(6, false, XEvent.class),
-                b1.getNegative(XYPort.class), new IdExtractor(1, true, YEvent.class));
-        ComponentHelper.connect(a2.getPositive(XYPort.class), new IdExtractor(2, false, XEvent.class),
-                b2.getNegative(XYPort.class), new IdExtractor(5, true, YEvent.class));
+    private static final Logger LOG = LoggerFactory.getLogger(Launcher.class);
+
+    public Launcher(LauncherInit init) {
+        LoadConfig config = init.config;
+        Component[] as = new Component[config.aComps];
+        for (int i = 0; i < as.length; i++) {
+            as[i] = create(AComp.class, new AInit(2 * i, config.wrapId, config.window, null, null, init.stats));
+        }
+        Component[][] bs = new Component[config.bComps][config.shards];
+        for (int i = 0; i < bs.length; i++) {
+            for (int j = 0; j < config.shards; j++) {
+                bs[i][j] = create(BComp.class, new BInit(2 * i + 1, null, init.stats));
+            }
+        }
+        for (ChannelSpec channel : config.channels) {
+            if (config.shards > 1) {
+                connectSharded(as[channel.a], channel, bs[channel.b], init.filters);
+            } else if (init.filters == null) {
+                ComponentHelper.connect(as[channel.a].getPositive(XYPort.class), channel.xFilter(),
+                        bs[channel.b][0].getNegative(XYPort.class), channel.yFilter());
+            } else {
+                ComponentHelper.connect(as[channel.a].getPositive(XYPort.class), channel.xFilter(),
+                        bs[channel.b][0].getNegative(XYPort.class), channel.yFilter(), init.filters);
+            }
+            if (init.affinity != null) {
+                init.affinity.pin(as[channel.a], bs[channel.b][0]);
+            }
+        }
+    }
+
+    private static void connectSharded(Component a, ChannelSpec channel, Component[] shards, FilterRegistry filters) {
+        List<Negative<XYPort>> replicas = new ArrayList<>();
+        for (Component b : shards) {
+            replicas.add(b.getNegative(XYPort.class));
+        }
+        if (filters == null) {
+            ComponentHelper.connectSharded(a.getPositive(XYPort.class), channel.xFilter(), replicas, channel.yFilter());
+        } else {
+            ComponentHelper.connectSharded(a.getPositive(XYPort.class), channel.xFilter(), replicas, channel.yFilter(), filters);
+        }
+    }
+
+    public static class LauncherInit extends Init<Launcher> {
+
+        public final LoadConfig config;
+        public final LoadStats stats;
+        public final AffinityScheduler affinity;
+        public final FilterRegistry filters;
+
+        public LauncherInit(LoadConfig config, LoadStats stats, AffinityScheduler affinity, FilterRegistry filters) {
+            this.config = config;
+            this.stats = stats;
+            this.affinity = affinity;
+            this.filters = filters;
+        }
     }
 
     public static void main(String[] args) {
-        start();
+        LoadConfig config = new LoadConfig(ConfigFactory.load());
+        LoadStats stats = new LoadStats(config.messages);
+        FilterRegistry filters = null;
+        if (config.filterSnapshots > 0) {
+            filters = new FilterRegistry(true);
+            filters.startSnapshots(config.filterSnapshots, new FilterRegistry.SnapshotListener() {
+                @Override
+                public void snapshot(List<FilterSnapshot> deltas) {
+                    for (FilterSnapshot delta : deltas) {
+                        LOG.info("{}", delta);
+                    }
+                }
+            });
+        }
+        start(config, stats, filters);
         try {
-            Kompics.waitForTermination();
+            stats.await(config.duration);
         } catch (InterruptedException ex) {
             throw new RuntimeException(ex.getMessage());
+        } finally {
+            stop();
         }
+        LOG.info("{}", stats.report());
+        if (filters != null) {
+            for (FilterSnapshot total : filters.snapshot()) {
+                LOG.info("{}", total);
+            }
+            filters.close();
+        }
+    }
+
+    public static void start(LoadConfig config, LoadStats stats) {
+        start(config, stats, null);
     }
 
-    public static void start() {
+    /**
+     * @param filters null to leave the filters uninstrumented
+     */
+    public static void start(LoadConfig config, LoadStats stats, FilterRegistry filters) {
         if (Kompics.isOn()) {
             Kompics.shutdown();
         }
-        Kompics.createAndStart(Launcher.class, Runtime.getRuntime().availableProcessors(), 20); // Yes 20 is totally arbitrary
+        AffinityScheduler affinity = config.affinity.scheduler(config.workers);
+        if (affinity != null) {
+            Kompics.setScheduler(affinity);
+        } else {
+            config.scheduling.install(config.workers);
+        }
+        Kompics.createAndStart(Launcher.class, new LauncherInit(config, stats, affinity, filters), config.workers, config.throughput);
     }
 
     public static void stop() {
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import com.typesafe.config.Config;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import se.sics.kompics.ChannelFilter;
+import se.sics.ktoolbox.examples.scheduler.SchedulerConfig;
+
+/**
+ * The launcher section of the config, see reference.conf. The scheduler mode
+ * comes from kompics.scheduler, the workers and throughput from the launcher
+ * section.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class LoadConfig {
+
+    public final int aComps;
+    public final int bComps;
+    public final int shards;
+    public final int window;
+    public final int wrapId;
+    public final long messages;
+    public final long duration;
+    public final int workers;
+    public final int throughput;
+    public final Affinity affinity;
+    public final SchedulerConfig scheduling;
+    public final long filterSnapshots;
+    public final List<ChannelSpec> channels;
+
+    public LoadConfig(Config config) {
+        aComps = config.getInt("launcher.aComps");
+        bComps = config.getInt("launcher.bComps");
+        shards = config.getInt("launcher.shards");
+        window = config.getInt("launcher.window");
+        wrapId = config.getInt("launcher.wrapId");
+        messages = config.getLong("launcher.messages");
+        duration = config.getLong("launcher.duration");
+        int configWorkers = config.getInt("launcher.workers");
+        workers = (configWorkers > 0 ? configWorkers : Runtime.getRuntime().availableProcessors());
+        throughput = config.getInt("launcher.throughput");
+        try {
+            affinity = Affinity.valueOf(config.getString("launcher.affinity").toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException("bad affinity:" + config.getString("launcher.affinity")
+                    + " expected none, pinned or inline");
+        }
+        filterSnapshots = config.getLong("launcher.filterSnapshots");
+        scheduling = new SchedulerConfig(config);
+        if (affinity != Affinity.NONE && scheduling.mode != SchedulerConfig.Mode.DEFAULT) {
+            throw new RuntimeException("launcher affinity:" + affinity + " needs the default kompics.scheduler mode");
+        }
+        if (shards < 1) {
+            throw new RuntimeException("launcher shards:" + shards + " should be at least 1");
+        }
+        if (shards > 1 && affinity != Affinity.NONE) {
+            throw new RuntimeException("launcher affinity:" + affinity + " would run all the shards of a b on one worker");
+        }
+        if (messages <= 0 && duration <= 0) {
+            throw new RuntimeException("launcher needs a message count or a duration to end");
+        }
+        List<ChannelSpec> specs = new ArrayList<>();
+        for (Config channel : config.getConfigList("launcher.channels")) {
+            ChannelSpec spec = new ChannelSpec(channel.getInt("a"), channel.getInt("b"),
+                    channel.getString("x"), channel.getString("y"));
+            if (spec.a < 0 || spec.a >= aComps || spec.b < 0 || spec.b >= bComps) {
+                throw new RuntimeException("channel a:" + spec.a + " b:" + spec.b + " out of range");
+            }
+            specs.add(spec);
+        }
+        channels = Collections.unmodifiableList(specs);
+    }
+
+    public static enum Affinity {
+
+        NONE, PINNED, INLINE;
+
+        /**
+         * @return null when the default kompics scheduler is to be used
+         */
+        public AffinityScheduler scheduler(int workers) {
+            switch (this) {
+                case PINNED:
+                    return new AffinityScheduler(workers, false);
+                case INLINE:
+                    return new AffinityScheduler(workers, true);
+                default:
+                    return null;
+            }
+        }
+    }
+
+    public static class ChannelSpec {
+
+        public final int a;
+        public final int b;
+        public final String xFilter;
+        public final String yFilter;
+
+        public ChannelSpec(int a, int b, String xFilter, String yFilter) {
+            this.a = a;
+            this.b = b;
+            this.xFilter = xFilter;
+            this.yFilter = yFilter;
+        }
+
+        public ChannelFilter<XEvent, ?> xFilter() {
+            return parseFilter(xFilter, XEvent.class);
+        }
+
+        public ChannelFilter<YEvent, ?> yFilter() {
+            return parseFilter(yFilter, YEvent.class);
+        }
+    }
+
+    private static final String FILTER_SYNTAX = " expected *, +id, -id or [from..to,id,!id,!from..to,...]";
+
+    /**
+     * @return null for "*", the unfiltered side
+     */
+    static <E extends XYEvent> ChannelFilter<E, ?> parseFilter(String spec, Class<E> eventType) {
+        if ("*".equals(spec)) {
+            return null;
+        }
+        try {
+            if (spec.length() >= 2 && spec.charAt(0) == '[' && spec.charAt(spec.length() - 1) == ']') {
+                return new IdSetFilter<>(parseIdSet(spec.substring(1, spec.length() - 1)), eventType);
+            }
+            if (spec.length() < 2 || (spec.charAt(0) != '+' && spec.charAt(0) != '-')) {
+                throw new RuntimeException("bad filter:" + spec + FILTER_SYNTAX);
+            }
+            return new IdExtractor<>(Integer.parseInt(spec.substring(1)), spec.charAt(0) == '+', eventType);
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException("bad filter:" + spec + FILTER_SYNTAX);
+        }
+    }
+
+    private static IdSet parseIdSet(String spec) {
+        IdSet.Builder builder = IdSet.builder();
+        for (String part : spec.split(",")) {
+            part = part.trim();
+            boolean exclude = part.startsWith("!");
+            if (exclude) {
+                part = part.substring(1);
+            }
+            int range = part.indexOf("..");
+            int from = Integer.parseInt(range < 0 ? part : part.substring(0, range));
+            int to = (range < 0 ? from : Integer.parseInt(part.substring(range + 2)));
+            if (exclude) {
+                builder.exclude(from, to);
+            } else {
+                builder.add(from, to);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared by the components of a load run: counts the hops, ends the run once
+ * the target number of hops is reached or the duration is over, and merges the
+ * per component latency histograms for the report.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class LoadStats {
+
+    private final long targetHops;
+    private final AtomicLong hops = new AtomicLong();
+    private final List<LatencyHistogram> histograms = new CopyOnWriteArrayList<>();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicBoolean done = new AtomicBoolean(false);
+    private final long startNanos;
+    private volatile long endNanos;
+
+    /**
+     * @param targetHops 0 for no limit
+     */
+    public LoadStats(long targetHops) {
+        this.targetHops = targetHops;
+        this.startNanos = System.nanoTime();
+    }
+
+    public LatencyHistogram register() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histograms.add(histogram);
+        return histogram;
+    }
+
+    /**
+     * Counts one received event.
+     *
+     * @return false once the run is over and nothing should be sent anymore
+     */
+    public boolean hop() {
+        long current = hops.incrementAndGet();
+        if (targetHops > 0 && current >= targetHops) {
+            finish();
+        }
+        return !done.get();
+    }
+
+    public boolean isDone() {
+        return done.get();
+    }
+
+    public void finish() {
+        if (done.compareAndSet(false, true)) {
+            endNanos = System.nanoTime();
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Waits for the target hops, at most durationMs if positive, and ends the
+     * run.
+     */
+    public void await(long durationMs) throws InterruptedException {
+        if (durationMs > 0) {
+            finished.await(durationMs, TimeUnit.MILLISECONDS);
+        } else {
+            finished.await();
+        }
+        finish();
+    }
+
+    public long hops() {
+        return hops.get();
+    }
+
+    public LatencyHistogram latencies() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            merged.merge(histogram);
+        }
+        return merged;
+    }
+
+    public String report() {
+        long elapsedNanos = (done.get() ? endNanos : System.nanoTime()) - startNanos;
+        double seconds = elapsedNanos / 1000000000d;
+        LatencyHistogram latencies = latencies();
+        return String.format("hops:%d in %.3fs, %.0f events/s, hop latency us p50:%.1f p99:%.1f p999:%.1f max:%.1f",
+                hops.get(), seconds, hops.get() / seconds,
+                latencies.percentile(50) / 1000d, latencies.percentile(99) / 1000d,
+                latencies.percentile(99.9) / 1000d, latencies.max() / 1000d);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Single producer single consumer ring of encoded x/y events in a memory
+ * mapped file, so the producer and the consumer can live in different JVMs
+ * of the same host. The file is in native byte order. Records are a length
+ * followed by the {@link XYCodec} bytes, 4 byte aligned. A record that does
+ * not fit before the end of the ring is preceded by a padding marker and
+ * written at the start.
+ * <p>
+ * The producer publishes its tail and the consumer its head, each side
+ * reading the other's counter only when its cached copy says the ring is full
+ * or empty. The counters are aligned longs on their own cache lines, read and
+ * written with absolute gets and puts. The buffer accesses themselves carry no
+ * ordering, so each side runs a {@link #fence(boolean)} after reading the
+ * other's counter and before publishing its own: the record bytes are written
+ * before the tail is, and read after it, and likewise for the freed space and
+ * the head.
+ * <p>
+ * The ring is created by one side with {@link #create(File, int)} and opened
+ * by the other with {@link #open(File, long)}, which waits for the creator to
+ * finish the header.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class MappedRing {
+
+    private static final int MAGIC = 0x58595247;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int TAIL_OFFSET = 64;
+    private static final int HEAD_OFFSET = 128;
+    private static final int DATA_OFFSET = 192;
+    private static final int PADDING = -1;
+
+    /**
+     * orders reading the magic before reading the rest of the header
+     */
+    private static volatile int openFence;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+    //producer side
+    private long tail;
+    private long cachedHead;
+    private volatile int producerFence;
+    //consumer side
+    private long head;
+    private long cachedTail;
+    private volatile int consumerFence;
+
+    private MappedRing(RandomAccessFile file, int capacity) throws IOException {
+        this.file = file;
+        this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + capacity);
+        this.buffer.order(ByteOrder.nativeOrder());
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.tail = buffer.getLong(TAIL_OFFSET);
+        this.cachedHead = buffer.getLong(HEAD_OFFSET);
+        fence(true);
+        this.head = cachedHead;
+        this.cachedTail = tail;
+    }
+
+    /**
+     * Creates the ring file, replacing any previous one.
+     *
+     * @param capacity data bytes, a power of two
+     */
+    public static MappedRing create(File path, int capacity) {
+        if (capacity < 1024 || Integer.bitCount(capacity) != 1) {
+            throw new RuntimeException("ring capacity:" + capacity + " should be a power of two of at least 1024");
+        }
+        try {
+            if (path.exists() && !path.delete()) {
+                throw new RuntimeException("could not replace ring:" + path);
+            }
+            RandomAccessFile file = new RandomAccessFile(path, "rw");
+            file.setLength(DATA_OFFSET + capacity);
+            MappedRing ring = new MappedRing(file, capacity);
+            ring.buffer.putInt(CAPACITY_OFFSET, capacity);
+            ring.fence(true);
+            ring.buffer.putInt(MAGIC_OFFSET, MAGIC);
+            return ring;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Opens a ring made by {@link #create(File, int)}, possibly in another
+     * JVM, waiting up to timeoutMs for it to appear.
+     */
+    public static MappedRing open(File path, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        try {
+            while (true) {
+                if (path.length() >= DATA_OFFSET) {
+                    RandomAccessFile file = new RandomAccessFile(path, "rw");
+                    MappedByteBuffer header = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, DATA_OFFSET);
+                    header.order(ByteOrder.nativeOrder());
+                    if (header.getInt(MAGIC_OFFSET) == MAGIC) {
+                        openFence = 1;
+                        if (openFence == 1) {
+                            return new MappedRing(file, header.getInt(CAPACITY_OFFSET));
+                        }
+                    }
+                    file.close();
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw new RuntimeException("ring:" + path + " not created in " + timeoutMs + "ms");
+                }
+                Thread.sleep(10);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted opening ring:" + path);
+        }
+    }
+
+    /**
+     * Producer side.
+     *
+     * @return false if the ring has no room for the event
+     */
+    public boolean offer(XYEvent event) {
+        int size = XYCodec.size(event);
+        int record = (4 + size + 3) & ~3;
+        if (record > capacity / 2) {
+            throw new RuntimeException("event of " + size + " bytes too large for ring of " + capacity);
+        }
+        int index = (int) (tail & mask);
+        int toEnd = capacity - index;
+        long needed = (toEnd < record ? toEnd + record : record);
+        if (tail + needed - cachedHead > capacity) {
+            cachedHead = buffer.getLong(HEAD_OFFSET);
+            fence(true);
+            if (tail + needed - cachedHead > capacity) {
+                return false;
+            }
+        }
+        if (toEnd < record) {
+            buffer.putInt(DATA_OFFSET + index, PADDING);
+            tail += toEnd;
+            index = 0;
+        }
+        XYCodec.write(event, buffer, DATA_OFFSET + index + 4);
+        buffer.putInt(DATA_OFFSET + index, size);
+        tail += record;
+        fence(true);
+        buffer.putLong(TAIL_OFFSET, tail);
+        return true;
+    }
+
+    /**
+     * Consumer side.
+     *
+     * @return the next event or null if the ring is empty
+     */
+    public XYEvent poll() {
+        if (head == cachedTail) {
+            cachedTail = buffer.getLong(TAIL_OFFSET);
+            fence(false);
+            if (head == cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) (head & mask);
+        int size = buffer.getInt(DATA_OFFSET + index);
+        if (size == PADDING) {
+            head += capacity - index;
+            index = 0;
+            size = buffer.getInt(DATA_OFFSET);
+        }
+        XYEvent event = XYCodec.read(buffer, DATA_OFFSET + index + 4);
+        head += (4 + size + 3) & ~3;
+        fence(false);
+        buffer.putLong(HEAD_OFFSET, head);
+        return event;
+    }
+
+    /**
+     * Full fence: no buffer access moves across a volatile store followed by
+     * a volatile load, whichever side of the pair it is on. Java 7 has no
+     * lighter fence for mapped memory short of sun.misc.Unsafe. Each side has
+     * its own field so the fences do not share a cache line.
+     *
+     * @return the value read, of no use to the caller
+     */
+    private int fence(boolean producer) {
+        if (producer) {
+            producerFence = 1;
+            return producerFence;
+        }
+        consumerFence = 1;
+        return consumerFence;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void close() {
+        try {
+            file.close();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.Arrays;
+import se.sics.kompics.ChannelCore;
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.ChannelFilter;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.Negative;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Single channel on a positive port delivering each event to every member of
+ * the group. Members are numbered slots, the live ones marked in a bitmap, so
+ * a trigger walks the set bits: one delivery per member and no filter
+ * evaluated on the source side.
+ * <p>
+ * Each member gets its own channel, registered at the member port only, which
+ * also carries what the member sends back to the source. Members join and
+ * leave at runtime; the slot of a member that left is reused by the next one
+ * joining. Events already delivered to a member that leaves stay in its
+ * queue.
+ * <p>
+ * Member channels retain pooled events both ways, see {@link EventPool}. Membership is copy-on-write, like the routes of
+ * {@link KeyedRouter}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class MulticastGroup<P extends PortType> extends ChannelCoreImpl<P> {
+
+    private final PortCore<P> source;
+    private final Object membershipLock = new Object();
+
+    private volatile Members members = new Members(new ChannelCore<?>[0], new PortCore<?>[0], new long[0]);
+
+    MulticastGroup(PortCore<P> source) {
+        super(source, source, source.getPortType());
+        this.source = source;
+    }
+
+    /**
+     * @param memberFilter filter on the member side, null for none
+     * @return the slot of the new member, to leave with
+     */
+    public int join(Negative<P> member, ChannelFilter<?, ?> memberFilter) {
+        PortCore<P> memberPort = (PortCore<P>) member;
+        ComponentHelper.checkFilters(source, null, memberPort, memberFilter);
+        ChannelCore<P> channel = new PooledChannel<P>(source, memberPort);
+        int slot;
+        synchronized (membershipLock) {
+            slot = members.freeSlot();
+            members = members.with(slot, channel, memberPort);
+        }
+        ComponentHelper.addChannel(memberPort, channel, memberFilter);
+        return slot;
+    }
+
+    public void leave(int slot) {
+        ChannelCore<P> channel;
+        PortCore<P> memberPort;
+        synchronized (membershipLock) {
+            channel = (ChannelCore<P>) members.channel(slot);
+            if (channel == null) {
+                throw new RuntimeException("no member in slot:" + slot);
+            }
+            memberPort = (PortCore<P>) members.ports[slot];
+            members = members.without(slot);
+        }
+        memberPort.removeChannel(channel);
+    }
+
+    public int size() {
+        return members.size;
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        deliver(event, wid, true);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        deliver(event, wid, false);
+    }
+
+    private void deliver(KompicsEvent event, int wid, boolean toPositive) {
+        Members current = members;
+        long[] live = current.live;
+        for (int word = 0; word < live.length; word++) {
+            long bits = live[word];
+            while (bits != 0) {
+                ChannelCore<?> channel = current.channels[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                if (toPositive) {
+                    channel.forwardToPositive(event, wid);
+                } else {
+                    channel.forwardToNegative(event, wid);
+                }
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Member channels and ports by slot and the bitmap of live slots, never
+     * modified once published.
+     */
+    private static class Members {
+
+        final ChannelCore<?>[] channels;
+        final PortCore<?>[] ports;
+        final long[] live;
+        final int size;
+
+        Members(ChannelCore<?>[] channels, PortCore<?>[] ports, long[] live) {
+            this.channels = channels;
+            this.ports = ports;
+            this.live = live;
+            int count = 0;
+            for (long word : live) {
+                count += Long.bitCount(word);
+            }
+            this.size = count;
+        }
+
+        ChannelCore<?> channel(int slot) {
+            return slot >= 0 && slot < channels.length && (live[slot >> 6] & (1L << slot)) != 0 ? channels[slot] : null;
+        }
+
+        int freeSlot() {
+            for (int word = 0; word < live.length; word++) {
+                if (live[word] != -1L) {
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(~live[word]);
+                    if (slot < channels.length) {
+                        return slot;
+                    }
+                }
+            }
+            return channels.length;
+        }
+
+        Members with(int slot, ChannelCore<?> channel, PortCore<?> port) {
+            int capacity = slot < channels.length ? channels.length : Math.max(64, channels.length * 2);
+            ChannelCore<?>[] nextChannels = Arrays.copyOf(channels, capacity);
+            PortCore<?>[] nextPorts = Arrays.copyOf(ports, capacity);
+            long[] nextLive = Arrays.copyOf(live, capacity >> 6);
+            nextChannels[slot] = channel;
+            nextPorts[slot] = port;
+            nextLive[slot >> 6] |= 1L << slot;
+            return new Members(nextChannels, nextPorts, nextLive);
+        }
+
+        Members without(int slot) {
+            ChannelCore<?>[] nextChannels = channels.clone();
+            PortCore<?>[] nextPorts = ports.clone();
+            long[] nextLive = live.clone();
+            nextChannels[slot] = null;
+            nextPorts[slot] = null;
+            nextLive[slot >> 6] &= ~(1L << slot);
+            return new Members(nextChannels, nextPorts, nextLive);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Channel taking a reference on the pooled events it delivers, see
+ * {@link EventPool}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class PooledChannel<P extends PortType> extends ChannelCoreImpl<P> {
+
+    PooledChannel(PortCore<P> positivePort, PortCore<P> negativePort) {
+        super(positivePort, negativePort, negativePort.getPortType());
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        if (event instanceof XYEvent) {
+            ((XYEvent) event).retain();
+        }
+        super.forwardToPositive(event, wid);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        if (event instanceof XYEvent) {
+            ((XYEvent) event).retain();
+        }
+        super.forwardToNegative(event, wid);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.Arrays;
+import se.sics.kompics.ChannelCore;
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.ChannelFilter;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.Negative;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Single channel on a positive port spreading the events over a group of
+ * replicas of one component. An {@link XYEvent} goes to exactly one replica,
+ * picked by hashing its {@link XYEvent#getId()}, the key {@link IdExtractor}
+ * filters on, so all the events of a key reach the same replica and the
+ * state kept per key never has to be shared between replicas. Replicas are
+ * separate components and so run in parallel on different workers. Events
+ * that carry no id go to every replica. Batches go by the id they start with,
+ * so the ids of a batch should not be expected on one replica.
+ * <p>
+ * Each replica gets its own channel, registered at the replica port only,
+ * which also carries what the replica sends back to the source. The shard of
+ * a key depends on the number of replicas: replicas are meant to be added
+ * before the first trigger, a replica added later moves keys between
+ * replicas.
+ * <p>
+ * Replica channels retain pooled events both ways, see {@link EventPool}. Shards are copy-on-write, like the routes of
+ * {@link KeyedRouter}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class ShardedGroup<P extends PortType> extends ChannelCoreImpl<P> {
+
+    private final PortCore<P> source;
+    private final Object shardingLock = new Object();
+
+    private volatile ChannelCore<?>[] shards = new ChannelCore<?>[0];
+
+    ShardedGroup(PortCore<P> source) {
+        super(source, source, source.getPortType());
+        this.source = source;
+    }
+
+    /**
+     * @param replicaFilter filter on the replica side, null for none
+     * @return the shard of the new replica
+     */
+    public int addShard(Negative<P> replica, ChannelFilter<?, ?> replicaFilter) {
+        PortCore<P> replicaPort = (PortCore<P>) replica;
+        ComponentHelper.checkFilters(source, null, replicaPort, replicaFilter);
+        ChannelCore<P> channel = new PooledChannel<P>(source, replicaPort);
+        int shard;
+        synchronized (shardingLock) {
+            shard = shards.length;
+            ChannelCore<?>[] next = Arrays.copyOf(shards, shard + 1);
+            next[shard] = channel;
+            shards = next;
+        }
+        ComponentHelper.addChannel(replicaPort, channel, replicaFilter);
+        return shard;
+    }
+
+    public int size() {
+        return shards.length;
+    }
+
+    /**
+     * @return the shard handling the key, -1 while the group is empty
+     */
+    public int shardOf(int key) {
+        return shardOf(key, shards.length);
+    }
+
+    private static int shardOf(int key, int size) {
+        if (size == 0) {
+            return -1;
+        }
+        int h = key * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & Integer.MAX_VALUE) % size;
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        route(event, wid, true);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        route(event, wid, false);
+    }
+
+    private void route(KompicsEvent event, int wid, boolean toPositive) {
+        ChannelCore<?>[] current = shards;
+        if (current.length == 0) {
+            return;
+        }
+        if (event instanceof XYEvent) {
+            forward(current[shardOf(((XYEvent) event).getId(), current.length)], event, wid, toPositive);
+        } else {
+            for (int i = 0; i < current.length; i++) {
+                forward(current[i], event, wid, toPositive);
+            }
+        }
+    }
+
+    private static void forward(ChannelCore<?> channel, KompicsEvent event, int wid, boolean toPositive) {
+        if (toPositive) {
+            channel.forwardToPositive(event, wid);
+        } else {
+            channel.forwardToNegative(event, wid);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.LockSupport;
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortCore;
+
+/**
+ * One end of an {@link XYPort} channel whose other end is in another JVM of
+ * the same host. Events triggered on the local port are encoded into the
+ * outgoing {@link MappedRing}, and a reader thread decodes the incoming ring
+ * and delivers to the local port. The positive end creates both ring files
+ * {@code <name>.toNegative} and {@code <name>.toPositive} in the directory,
+ * the negative end opens them.
+ * <p>
+ * When the outgoing ring is full the event is deferred, holding a reference
+ * if pooled, and the reader thread moves deferred events to the ring as the
+ * other side catches up, so the triggering component never stalls. The reader
+ * spins briefly when there is nothing to do, then yields, then parks for
+ * {@link #IDLE_PARK_NANOS}.
+ * <p>
+ * Events cross as copies: pooled events stay local, the other side gets
+ * plain ones.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class SharedMemoryBridge extends ChannelCoreImpl<XYPort> {
+
+    public static final long OPEN_TIMEOUT_MS = 30000;
+    public static final long IDLE_PARK_NANOS = 20000;
+    private static final int IDLE_SPINS = 1000;
+    private static final int IDLE_YIELDS = 100;
+    /**
+     * delivered from the reader thread, which is not a kompics worker
+     */
+    private static final int NO_WORKER = -1;
+
+    private final boolean positiveEnd;
+    private final MappedRing out;
+    private final MappedRing in;
+    private final Thread reader;
+    /**
+     * waiting for room in the outgoing ring, in order. While there are any
+     * only the reader thread offers to the ring, so it keeps one producer.
+     */
+    private final ArrayDeque<XYEvent> deferred = new ArrayDeque<>();
+    private volatile boolean deferring = false;
+    private volatile boolean running = true;
+
+    private SharedMemoryBridge(PortCore<XYPort> local, boolean positiveEnd, MappedRing out, MappedRing in, String name) {
+        super(local, local, local.getPortType());
+        this.positiveEnd = positiveEnd;
+        this.out = out;
+        this.in = in;
+        this.reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        }, "shm-bridge-" + name + (positiveEnd ? "-positive" : "-negative"));
+        this.reader.setDaemon(true);
+    }
+
+    static SharedMemoryBridge positiveEnd(PortCore<XYPort> local, File dir, String name, int capacity) {
+        MappedRing out = MappedRing.create(new File(dir, name + ".toNegative"), capacity);
+        MappedRing in = MappedRing.create(new File(dir, name + ".toPositive"), capacity);
+        return new SharedMemoryBridge(local, true, out, in, name);
+    }
+
+    static SharedMemoryBridge negativeEnd(PortCore<XYPort> local, File dir, String name) {
+        MappedRing in = MappedRing.open(new File(dir, name + ".toNegative"), OPEN_TIMEOUT_MS);
+        MappedRing out = MappedRing.open(new File(dir, name + ".toPositive"), OPEN_TIMEOUT_MS);
+        return new SharedMemoryBridge(local, false, out, in, name);
+    }
+
+    void start() {
+        reader.start();
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        send(event);
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        send(event);
+    }
+
+    private void send(KompicsEvent event) {
+        if (!(event instanceof XYEvent)) {
+            throw new RuntimeException("no codec for:" + event.getClass());
+        }
+        XYEvent xy = (XYEvent) event;
+        if (!deferring && out.offer(xy)) {
+            return;
+        }
+        synchronized (deferred) {
+            if (deferred.isEmpty() && out.offer(xy)) {
+                return;
+            }
+            xy.retain();
+            deferred.addLast(xy);
+            deferring = true;
+        }
+    }
+
+    /**
+     * @return true if deferred events were moved to the outgoing ring
+     */
+    private boolean flush() {
+        int moved = 0;
+        synchronized (deferred) {
+            XYEvent next;
+            while ((next = deferred.peekFirst()) != null && out.offer(next)) {
+                deferred.pollFirst();
+                next.release();
+                moved++;
+            }
+            deferring = !deferred.isEmpty();
+        }
+        return moved > 0;
+    }
+
+    public int deferred() {
+        synchronized (deferred) {
+            return deferred.size();
+        }
+    }
+
+    private void read() {
+        int idle = 0;
+        while (running) {
+            boolean busy = (deferring && flush());
+            XYEvent event = in.poll();
+            if (event != null) {
+                busy = true;
+                if (positiveEnd) {
+                    super.forwardToPositive(event, NO_WORKER);
+                } else {
+                    super.forwardToNegative(event, NO_WORKER);
+                }
+            }
+            if (busy) {
+                idle = 0;
+            } else if (idle < IDLE_SPINS) {
+                idle++;
+            } else if (idle < IDLE_SPINS + IDLE_YIELDS) {
+                idle++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Stops the reader and closes the ring files, the local port keeps the
+     * channel. Events still deferred are dropped.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(reader);
+        try {
+            reader.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (deferred) {
+            XYEvent next;
+            while ((next = deferred.pollFirst()) != null) {
+                next.release();
+            }
+            deferring = false;
+        }
+        out.close();
+        in.close();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import se.sics.kompics.ChannelCoreImpl;
+import se.sics.kompics.KompicsEvent;
+import se.sics.kompics.PortCore;
+import se.sics.kompics.PortType;
+
+/**
+ * Channel with one sender and one receiver per direction - the owners of the
+ * two ports - passing x and y events through a lock-free single producer
+ * single consumer queue of its own instead of the multi-producer queue of the
+ * receiving component. The component queue only sees one
+ * {@link XYDrainEvent} per run of events, so a run costs one enqueue and one
+ * scheduling of the receiver instead of one per event.
+ * <p>
+ * Only valid when nothing but the owner triggers on each port, e.g. not on a
+ * port a parent also triggers on. Other events cross the channel unchanged and
+ * can overtake the x and y events waiting in the channel queue.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class SpscChannel<P extends PortType> extends ChannelCoreImpl<P> {
+
+    private final XDrainEvent toNegative;
+    private final YDrainEvent toPositive;
+
+    SpscChannel(PortCore<P> positivePort, PortCore<P> negativePort) {
+        this(positivePort, negativePort, new SpscQueue<XEvent>(), new SpscQueue<YEvent>());
+    }
+
+    SpscChannel(PortCore<P> positivePort, PortCore<P> negativePort, Backlog<XEvent> xBacklog, Backlog<YEvent> yBacklog) {
+        super(positivePort, negativePort, negativePort.getPortType());
+        this.toNegative = new XDrainEvent(this, xBacklog);
+        this.toPositive = new YDrainEvent(this, yBacklog);
+    }
+
+    @Override
+    public void forwardToPositive(KompicsEvent event, int wid) {
+        if (event instanceof YEvent) {
+            toPositive.offer((YEvent) event, wid);
+        } else {
+            super.forwardToPositive(event, wid);
+        }
+    }
+
+    @Override
+    public void forwardToNegative(KompicsEvent event, int wid) {
+        if (event instanceof XEvent) {
+            toNegative.offer((XEvent) event, wid);
+        } else {
+            super.forwardToNegative(event, wid);
+        }
+    }
+
+    void signal(XYDrainEvent<?> drain, int wid) {
+        if (drain == toNegative) {
+            super.forwardToNegative(drain, wid);
+        } else {
+            super.forwardToPositive(drain, wid);
+        }
+    }
+}
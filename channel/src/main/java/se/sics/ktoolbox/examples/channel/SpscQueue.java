@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Unbounded queue for exactly one producer thread and one consumer thread at
+ * a time, in chunks of {@value #CHUNK} slots. Offers and polls are plain
+ * array accesses with ordered stores: no CAS and no lock. The producer links
+ * a new chunk when its chunk is full, the consumer follows the link once it
+ * has read the last slot. Events are retained while they wait, see
+ * {@link EventPool}, the reference going to the receiver with the event.
+ * <p>
+ * The threads may change, as kompics workers do, as long as the hand-off from
+ * one producer (or consumer) thread to the next happens-before its next
+ * access, which component scheduling provides.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+final class SpscQueue<E extends XYEvent> implements Backlog<E> {
+
+    static final int CHUNK = 1024;
+
+    //producer side
+    private Chunk tail = new Chunk();
+    private int tailIndex = 0;
+    //consumer side
+    private Chunk head = tail;
+    private int headIndex = 0;
+
+    @Override
+    public void offer(E event) {
+        event.retain();
+        if (tailIndex == CHUNK) {
+            Chunk next = new Chunk();
+            //slots are published before the link, the consumer only follows a full chunk
+            tail.next = next;
+            tail = next;
+            tailIndex = 0;
+        }
+        tail.slots.lazySet(tailIndex++, event);
+    }
+
+    /**
+     * @return null if the queue is empty
+     */
+    @Override
+    public E poll() {
+        if (headIndex == CHUNK) {
+            Chunk next = head.next;
+            if (next == null) {
+                return null;
+            }
+            head = next;
+            headIndex = 0;
+        }
+        E event = (E) head.slots.get(headIndex);
+        if (event != null) {
+            head.slots.lazySet(headIndex++, null);
+        }
+        return event;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (headIndex == CHUNK) {
+            Chunk next = head.next;
+            return next == null || next.slots.get(0) == null;
+        }
+        return head.slots.get(headIndex) == null;
+    }
+
+    private static final class Chunk {
+
+        final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(CHUNK);
+        volatile Chunk next;
+    }
+}
@@ -27,4 +27,8 @@ public class XEvent extends XYEvent {
     public XEvent(int id) {
         super(id);
     }
+
+    public XEvent(int id, long timestamp) {
+        super(id, timestamp);
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.Arrays;
+
+/**
+ * Many x or y ids delivered as one event. Built by {@link CoalescingChannel}:
+ * the channel keeps appending ids while the batch waits in the receiver's
+ * queue, and the receiver {@link #seal()}s it before reading.
+ * {@link #getId()} and {@link #getTimestamp()} are those of the first event.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public abstract class XYBatchEvent extends XYEvent {
+
+    private final int maxSize;
+    private int[] ids;
+    private long[] timestamps;
+    private int size;
+    private boolean sealed = false;
+
+    protected XYBatchEvent(int firstId, long firstTimestamp, int maxSize) {
+        super(firstId, firstTimestamp);
+        this.maxSize = maxSize;
+        this.ids = new int[Math.min(maxSize, 16)];
+        this.timestamps = new long[ids.length];
+        this.ids[0] = firstId;
+        this.timestamps[0] = firstTimestamp;
+        this.size = 1;
+    }
+
+    /**
+     * @return false if the receiver already sealed the batch or it is full
+     */
+    synchronized boolean append(int id, long timestamp) {
+        if (sealed || size == maxSize) {
+            return false;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.min(maxSize, 2 * ids.length));
+            timestamps = Arrays.copyOf(timestamps, ids.length);
+        }
+        ids[size] = id;
+        timestamps[size] = timestamp;
+        size++;
+        return true;
+    }
+
+    /**
+     * Closes the batch to further appends.
+     *
+     * @return the number of ids in the batch
+     */
+    public synchronized int seal() {
+        sealed = true;
+        return size;
+    }
+
+    /**
+     * valid once the batch is sealed
+     */
+    public int id(int i) {
+        return ids[i];
+    }
+
+    /**
+     * valid once the batch is sealed
+     */
+    public long timestamp(int i) {
+        return timestamps[i];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.nio.ByteBuffer;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * Compact binary form of the x/y events: a type byte, then id and timestamp
+ * for a single event, or the size and the id and timestamp pairs for a
+ * batch. 13 bytes for a single event. Batches are sealed when encoded.
+ * Timestamps are kept, {@link System#nanoTime()} being comparable across the
+ * JVMs of one host on the platforms we run on.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class XYCodec {
+
+    public static final byte X = 1;
+    public static final byte Y = 2;
+    public static final byte X_BATCH = 3;
+    public static final byte Y_BATCH = 4;
+
+    public static final int SINGLE_SIZE = 1 + 4 + 8;
+    private static final int PAIR_SIZE = 4 + 8;
+
+    /**
+     * @return the encoded size, sealing batches
+     */
+    public static int size(KompicsEvent event) {
+        if (event instanceof XYBatchEvent) {
+            return 1 + 4 + ((XYBatchEvent) event).seal() * PAIR_SIZE;
+        }
+        if (event instanceof XEvent || event instanceof YEvent) {
+            return SINGLE_SIZE;
+        }
+        throw new RuntimeException("no codec for:" + event.getClass());
+    }
+
+    /**
+     * Writes at index, the buffer position is not used.
+     *
+     * @return the number of bytes written
+     */
+    public static int write(KompicsEvent event, ByteBuffer buffer, int index) {
+        if (event instanceof XYBatchEvent) {
+            XYBatchEvent batch = (XYBatchEvent) event;
+            int size = batch.seal();
+            buffer.put(index, batch instanceof XBatchEvent ? X_BATCH : Y_BATCH);
+            buffer.putInt(index + 1, size);
+            int at = index + 5;
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(at, batch.id(i));
+                buffer.putLong(at + 4, batch.timestamp(i));
+                at += PAIR_SIZE;
+            }
+            return at - index;
+        }
+        XYEvent single = (XYEvent) event;
+        buffer.put(index, single instanceof XEvent ? X : Y);
+        buffer.putInt(index + 1, single.getId());
+        buffer.putLong(index + 5, single.getTimestamp());
+        return SINGLE_SIZE;
+    }
+
+    /**
+     * Reads at index, the buffer position is not used.
+     */
+    public static XYEvent read(ByteBuffer buffer, int index) {
+        return read(buffer, index, false, 0);
+    }
+
+    /**
+     * Reads at index with every timestamp replaced by the given one, for
+     * events whose recorded timestamps come from another process.
+     */
+    public static XYEvent read(ByteBuffer buffer, int index, long timestamp) {
+        return read(buffer, index, true, timestamp);
+    }
+
+    private static XYEvent read(ByteBuffer buffer, int index, boolean restamp, long timestamp) {
+        byte type = buffer.get(index);
+        switch (type) {
+            case X:
+                return new XEvent(buffer.getInt(index + 1), restamp ? timestamp : buffer.getLong(index + 5));
+            case Y:
+                return new YEvent(buffer.getInt(index + 1), restamp ? timestamp : buffer.getLong(index + 5));
+            case X_BATCH:
+            case Y_BATCH:
+                int size = buffer.getInt(index + 1);
+                int at = index + 5;
+                long first = (restamp ? timestamp : buffer.getLong(at + 4));
+                XYBatchEvent batch = (type == X_BATCH
+                        ? new XBatchEvent(buffer.getInt(at), first, size)
+                        : new YBatchEvent(buffer.getInt(at), first, size));
+                for (int i = 1; i < size; i++) {
+                    at += PAIR_SIZE;
+                    batch.append(buffer.getInt(at), restamp ? timestamp : buffer.getLong(at + 4));
+                }
+                return batch;
+            default:
+                throw new RuntimeException("unknown event type:" + type);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.channel;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import se.sics.kompics.Handler;
+import se.sics.kompics.KompicsEvent;
+
+/**
+ * Tells the receiver of a {@link SpscChannel} that x or y events wait in the
+ * backlog of the channel. Only one drain event per direction is ever queued
+ * at the receiver: the sender queues it when the backlog stops being empty,
+ * and the receiver takes all the events that arrived meanwhile out of the
+ * backlog, at most {@link #MAX_DRAIN} of them before it queues the drain event
+ * again behind its other pending events. Receivers subscribe
+ * {@link ComponentHelper#drainX(Handler)} or
+ * {@link ComponentHelper#drainY(Handler)} next to their single event handlers.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public abstract class XYDrainEvent<E extends XYEvent> implements KompicsEvent {
+
+    public static final int MAX_DRAIN = 256;
+    private static final int NO_WORKER = -1;
+
+    private final SpscChannel<?> channel;
+    private final Backlog<E> backlog;
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+
+    XYDrainEvent(SpscChannel<?> channel, Backlog<E> backlog) {
+        this.channel = channel;
+        this.backlog = backlog;
+    }
+
+    /**
+     * sender side
+     */
+    void offer(E event, int wid) {
+        backlog.offer(event);
+        //unconditional: the swap orders the offer before the read of pending, a plain read could miss a reset
+        if (!pending.getAndSet(true)) {
+            channel.signal(this, wid);
+        }
+    }
+
+    /**
+     * receiver side
+     */
+    public void drain(Handler<E> handler) {
+        int handled = 0;
+        while (true) {
+            E event;
+            while ((event = backlog.poll()) != null) {
+                handler.handle(event);
+                if (++handled >= MAX_DRAIN && !backlog.isEmpty()) {
+                    //still pending, the rest waits behind the events queued at the receiver meanwhile
+                    channel.signal(this, NO_WORKER);
+                    return;
+                }
+            }
+            pending.set(false);
+            //an event offered before the reset saw the drain pending and did not signal, take it back unless a sender did
+            if (backlog.isEmpty() || pending.getAndSet(true)) {
+                return;
+            }
+        }
+    }
+}
@@ -19,15 +19,75 @@
 
 package se.sics.ktoolbox.examples.channel;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import se.sics.kompics.KompicsEvent;
 
 /**
+ * {@link #getTimestamp()} is the {@link System#nanoTime()} the event was
+ * created at, used to measure hop latencies.
+ * <p>
+ * Events taken from an {@link EventPool} are reference counted: the sender
+ * holds one reference until its trigger returns and every channel delivering
+ * the event holds one until the receiving handler calls {@link #release()}.
+ * Both fields are read only to everyone but the pool, which rewrites them
+ * once all references to a pooled event are gone.
+ * <p>
+ * A delivery holds one reference whatever the number of handlers the receiver
+ * subscribed for the event, so only one of them may release it.
+ *
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public abstract class XYEvent implements KompicsEvent {
-    public final int id;
+
+    private static final AtomicIntegerFieldUpdater<XYEvent> REFS
+            = AtomicIntegerFieldUpdater.newUpdater(XYEvent.class, "refs");
+
+    private int id;
+    private long timestamp;
+    EventPool<?> pool = null;
+    private volatile int refs = 0;
     
     public XYEvent(int id) {
+        this(id, System.nanoTime());
+    }
+
+    public XYEvent(int id, long timestamp) {
+        this.id = id;
+        this.timestamp = timestamp;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    void retain() {
+        if (pool != null) {
+            REFS.incrementAndGet(this);
+        }
+    }
+
+    /**
+     * Drops one reference to a pooled event, a no-op for other events.
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        int left = REFS.decrementAndGet(this);
+        if (left == 0) {
+            EventPool.recycle(pool, this);
+        } else if (left < 0) {
+            throw new RuntimeException("released more often than retained:" + this);
+        }
+    }
+
+    void reset(int id) {
         this.id = id;
+        this.timestamp = System.nanoTime();
+        REFS.set(this, 1);
     }
 }
@@ -27,6 +27,10 @@ import se.sics.kompics.PortType;
 public class XYPort extends PortType {
     {
         positive(XEvent.class);
+        positive(XBatchEvent.class);
+        positive(XDrainEvent.class);
         negative(YEvent.class);
+        negative(YBatchEvent.class);
+        negative(YDrainEvent.class);
     }
 }
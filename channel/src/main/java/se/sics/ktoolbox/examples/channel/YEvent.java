@@ -28,4 +28,8 @@ public class YEvent extends XYEvent {
     public YEvent(int id) {
         super(id);
     }
+
+    public YEvent(int id, long timestamp) {
+        super(id, timestamp);
+    }
 }
@@ -29,6 +29,7 @@ import se.sics.kompics.Init;
 import se.sics.kompics.Kompics;
 import se.sics.kompics.timer.Timer;
 import se.sics.kompics.timer.java.JavaTimer;
+import se.sics.ktoolbox.examples.scheduler.SchedulerConfig;
 import se.sics.ktoolbox.ipsolver.hooks.IpSolverHookFactory;
 import se.sics.p2ptoolbox.util.network.hooks.NetworkHookFactory;
 import se.sics.p2ptoolbox.util.network.hooks.PortBindingHookFactory;
@@ -95,7 +96,9 @@ public class NodeLauncher extends ComponentDefinition {
         if (Kompics.isOn()) {
             Kompics.shutdown();
         }
-        Kompics.createAndStart(NodeLauncher.class, Runtime.getRuntime().availableProcessors(), 20); // Yes 20 is totally arbitrary
+        SchedulerConfig scheduling = new SchedulerConfig(ConfigFactory.load());
+        scheduling.install();
+        Kompics.createAndStart(NodeLauncher.class, scheduling.workers, scheduling.throughput);
     }
 
     public static void stop() {
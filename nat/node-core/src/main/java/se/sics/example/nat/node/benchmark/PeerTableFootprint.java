@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.benchmark;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.example.nat.node.util.PeerTable;
+import se.sics.p2ptoolbox.util.network.impl.BasicAddress;
+import se.sics.p2ptoolbox.util.network.impl.DecoratedAddress;
+
+/**
+ * Heap retained per peer by a {@link PeerTable} against the map per state
+ * layout it replaces in NodeComp: pending, ponged and missed maps keyed by
+ * base address, each entry holding a value object with the retries or the
+ * timestamp of the peer. The maps keep no order of ping deadlines, which the
+ * table does, so the comparison only favours the maps. The peers are split
+ * evenly over pending, ponged and missed, and the addresses themselves are
+ * allocated up front, so only the tracking is measured.
+ * <p>
+ * Run with {@code java -cp node-core.jar
+ * se.sics.example.nat.node.benchmark.PeerTableFootprint 100000}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class PeerTableFootprint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PeerTableFootprint.class);
+
+    public static void main(String[] args) throws UnknownHostException, InterruptedException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        DecoratedAddress[] addresses = new DecoratedAddress[n];
+        for (int i = 0; i < n; i++) {
+            InetAddress ip = InetAddress.getByAddress(new byte[]{10, (byte) (i >>> 16), (byte) (i >>> 8), (byte) i});
+            addresses[i] = DecoratedAddress.open(ip, 30000 + i % 1000, i);
+        }
+        long baseline = usedAfterGc();
+        PeerTable table = table(addresses);
+        long tableBytes = usedAfterGc() - baseline;
+        LOG.info("table peers:{} bytes/peer:{}", table.size(), tableBytes / n);
+        table = null;
+
+        baseline = usedAfterGc();
+        Maps maps = maps(addresses);
+        long mapBytes = usedAfterGc() - baseline;
+        LOG.info("maps peers:{} bytes/peer:{}", maps.size(), mapBytes / n);
+    }
+
+    private static PeerTable table(DecoratedAddress[] addresses) {
+        long now = System.currentTimeMillis();
+        PeerTable table = new PeerTable(50, 256, 0);
+        for (int i = 0; i < addresses.length; i++) {
+            switch (i % 3) {
+                case 0:
+                    table.pend(addresses[i], 5, i % 1000);
+                    break;
+                case 1:
+                    table.put(addresses[i], PeerTable.PONGED, now);
+                    break;
+                default:
+                    table.put(addresses[i], PeerTable.MISSED, now);
+            }
+        }
+        return table;
+    }
+
+    private static Maps maps(DecoratedAddress[] addresses) {
+        long now = System.currentTimeMillis();
+        Maps maps = new Maps();
+        for (int i = 0; i < addresses.length; i++) {
+            switch (i % 3) {
+                case 0:
+                    maps.pending.put(addresses[i].getBase(), new Retried(addresses[i], 5));
+                    break;
+                case 1:
+                    maps.ponged.put(addresses[i].getBase(), new Stamped(addresses[i], now));
+                    break;
+                default:
+                    maps.missed.put(addresses[i].getBase(), new Stamped(addresses[i], now));
+            }
+        }
+        return maps;
+    }
+
+    private static long usedAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class Maps {
+
+        final Map<BasicAddress, Retried> pending = new HashMap<>();
+        final Map<BasicAddress, Stamped> ponged = new LinkedHashMap<>();
+        final Map<BasicAddress, Stamped> missed = new LinkedHashMap<>();
+
+        int size() {
+            return pending.size() + ponged.size() + missed.size();
+        }
+    }
+
+    private static class Retried {
+
+        final DecoratedAddress peer;
+        final int retries;
+
+        Retried(DecoratedAddress peer, int retries) {
+            this.peer = peer;
+            this.retries = retries;
+        }
+    }
+
+    private static class Stamped {
+
+        final DecoratedAddress peer;
+        final long since;
+
+        Stamped(DecoratedAddress peer, long since) {
+            this.peer = peer;
+            this.since = since;
+        }
+    }
+}
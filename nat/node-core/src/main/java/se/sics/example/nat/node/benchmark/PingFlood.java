@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.example.nat.node.msg.NodeMsg;
+import se.sics.example.nat.node.util.SourceLimiter;
+import se.sics.kompics.network.Transport;
+import se.sics.p2ptoolbox.util.network.impl.BasicContentMsg;
+import se.sics.p2ptoolbox.util.network.impl.DecoratedAddress;
+import se.sics.p2ptoolbox.util.network.impl.DecoratedHeader;
+
+/**
+ * Floods the {@link SourceLimiter} NodeComp answers pings through, on a
+ * simulated ms clock: a few sources ping as fast as they can while many quiet
+ * ones ping once a second. Logs the pongs a second that would go out for
+ * each, so the outbound rate stays bounded by the flooders times the per
+ * source rate while the quiet sources are still answered, and the bytes the
+ * admission allocates per ping.
+ * <p>
+ * A second run also builds each pong the way NodeComp does, with the header
+ * of the source cached, and logs the bytes allocated per pong on top of
+ * the admission. That is the message and its content: both echo the sequence
+ * number and timestamp of the ping and may still be in the hands of the
+ * network layer when the next pong to the same source is built, so they are
+ * not reused.
+ * <p>
+ * Run with {@code java -cp node-core.jar
+ * se.sics.example.nat.node.benchmark.PingFlood 16 10000 5000 60}: flooders,
+ * pings a second of each, quiet sources, seconds.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class PingFlood {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PingFlood.class);
+
+    //keeps the pongs built from being optimized away
+    private static final Object[] SENT = new Object[64];
+
+    public static void main(String[] args) throws UnknownHostException {
+        int flooders = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int floodRate = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int quiet = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+
+        DecoratedAddress self = DecoratedAddress.open(InetAddress.getByAddress(new byte[]{10, 127, 0, 1}), 30000, -1);
+        DecoratedAddress[] sources = new DecoratedAddress[flooders + quiet];
+        DecoratedHeader<DecoratedAddress>[] pongHeaders = new DecoratedHeader[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            InetAddress ip = InetAddress.getByAddress(new byte[]{10, (byte) (i >>> 16), (byte) (i >>> 8), (byte) i});
+            sources[i] = DecoratedAddress.open(ip, 30000, i);
+            pongHeaders[i] = new DecoratedHeader(self, sources[i], Transport.UDP);
+        }
+
+        Flood admit = new Flood(flooders, floodRate, sources, null);
+        admit.run(seconds);
+        Flood answer = new Flood(flooders, floodRate, sources, pongHeaders);
+        answer.run(seconds);
+
+        LOG.info("flood pings/s:{} pongs/s:{}", admit.floodPings / seconds, admit.floodPongs / seconds);
+        LOG.info("quiet pings/s:{} pongs/s:{} answered:{}%", new Object[]{admit.quietPings / seconds,
+            admit.quietPongs / seconds, 100 * admit.quietPongs / Math.max(1, admit.quietPings)});
+        LOG.info("bytes allocated per ping:{}", (double) admit.allocated / (admit.floodPings + admit.quietPings));
+        LOG.info("bytes allocated per pong:{}",
+                (double) (answer.allocated - admit.allocated) / Math.max(1, answer.floodPongs + answer.quietPongs));
+    }
+
+    private static class Flood {
+
+        final int flooders;
+        final int floodRate;
+        final DecoratedAddress[] sources;
+        //null to only run the admission
+        final DecoratedHeader<DecoratedAddress>[] pongHeaders;
+        //the pings as decoded, not counted
+        final NodeMsg.Ping[] pings;
+        long floodPings = 0;
+        long floodPongs = 0;
+        long quietPings = 0;
+        long quietPongs = 0;
+        long allocated = 0;
+
+        Flood(int flooders, int floodRate, DecoratedAddress[] sources, DecoratedHeader<DecoratedAddress>[] pongHeaders) {
+            this.flooders = flooders;
+            this.floodRate = floodRate;
+            this.sources = sources;
+            this.pongHeaders = pongHeaders;
+            this.pings = new NodeMsg.Ping[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                pings[i] = new NodeMsg.Ping(i, i);
+            }
+        }
+
+        void run(int seconds) {
+            //defaults of node.ping.answer
+            SourceLimiter limiter = new SourceLimiter(1024, 4, 5, 10, 0);
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            for (long now = 0; now < seconds * 1000L; now++) {
+                //flood pings spread evenly over the ms of a second
+                for (int i = 0; i < flooders; i++) {
+                    long due = (now + 1) * floodRate / 1000 - now * floodRate / 1000;
+                    for (long j = 0; j < due; j++) {
+                        floodPings++;
+                        if (ping(limiter, i, now)) {
+                            floodPongs++;
+                        }
+                    }
+                }
+                for (int i = flooders; i < sources.length; i++) {
+                    if (now % 1000 == i % 1000) {
+                        quietPings++;
+                        if (ping(limiter, i, now)) {
+                            quietPongs++;
+                        }
+                    }
+                }
+            }
+            allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+        }
+
+        private boolean ping(SourceLimiter limiter, int source, long now) {
+            if (!limiter.tryTake(sources[source].getBase(), now)) {
+                return false;
+            }
+            if (pongHeaders != null) {
+                SENT[source & (SENT.length - 1)] = new BasicContentMsg(pongHeaders[source], pings[source].pong());
+            }
+            return true;
+        }
+    }
+}
@@ -18,14 +18,15 @@
  */
 package se.sics.example.nat.node.core;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
 import se.sics.example.nat.node.msg.NodeMsg;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.UUID;
-import org.javatuples.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.sics.kompics.ClassMatchedHandler;
@@ -35,10 +36,20 @@ import se.sics.kompics.Init;
 import se.sics.kompics.Negative;
 import se.sics.kompics.Positive;
 import se.sics.kompics.Start;
+import se.sics.kompics.Stop;
 import se.sics.kompics.network.Network;
 import se.sics.kompics.network.Transport;
+import se.sics.example.nat.node.event.PeerRtt;
 import se.sics.example.nat.node.event.Pinged;
 import se.sics.example.nat.node.util.NodeView;
+import se.sics.example.nat.node.util.PeerTable;
+import se.sics.example.nat.node.util.PingStats;
+import se.sics.example.nat.node.util.RttHistogram;
+import se.sics.example.nat.node.util.RttTable;
+import se.sics.example.nat.node.util.SourceLimiter;
+import se.sics.example.nat.node.util.TokenBucket;
+import se.sics.example.nat.node.util.VersionedPeers;
+import se.sics.kompics.timer.CancelPeriodicTimeout;
 import se.sics.kompics.timer.SchedulePeriodicTimeout;
 import se.sics.kompics.timer.Timeout;
 import se.sics.kompics.timer.Timer;
@@ -64,6 +75,8 @@ import se.sics.p2ptoolbox.util.update.SelfViewUpdatePort;
 public class NodeComp extends ComponentDefinition {
 
     private static final Logger LOG = LoggerFactory.getLogger(NodeComp.class);
+    private static final int PING_WHEEL_SLOTS = 256;
+    private static final int PONG_HEADERS = 1024;
     private String logPrefix = "";
 
     private Positive<Network> network = requires(Network.class);
@@ -75,10 +88,23 @@ public class NodeComp extends ComponentDefinition {
 
     private final NodeKCWrapper config;
     private DecoratedAddress self;
-    private Map<BasicAddress, Pair<DecoratedAddress, Integer>> ping = new HashMap<>();
-    private Map<BasicAddress, DecoratedAddress> ponged = new HashMap<>();
-    private Map<BasicAddress, DecoratedAddress> missed = new HashMap<>();
-    private Set<String> unfeasible = new HashSet<>();
+    //pending, ponged and missed peers
+    private final PeerTable peers;
+    private final TokenBucket pacer;
+    //first pings of new targets go round robin over the ticks of a ping timeout
+    private int spread = 0;
+    private final VersionedPeers pongedVersions;
+    private final RttTable rtts;
+    private final long startNanos = System.nanoTime();
+    private int pingSeq = 0;
+    private final SourceLimiter answerLimiter;
+    //headers are immutable, so one is shared by the pongs to the same source while it stays cached.
+    //the message and its content echo the ping and may still be queued at the network, so each pong gets its own,
+    //bounded by the answer limiter, see PingFlood
+    private final DecoratedHeader<DecoratedAddress>[] pongHeaders = new DecoratedHeader[PONG_HEADERS];
+    private final PingStats stats;
+    //null when no csv is configured or it could not be written
+    private Writer csv;
 
     private UUID pingTId;
     private UUID statusTId;
@@ -87,10 +113,21 @@ public class NodeComp extends ComponentDefinition {
         config = init.config;
         self = init.self;
         logPrefix = "<nid:" + config.system.id + "> ";
+        pacer = new TokenBucket(config.pacerRate, config.pacerBurst, 0);
+        pongedVersions = new VersionedPeers(config.pongedHistory);
+        peers = new PeerTable(config.pacerTick, PING_WHEEL_SLOTS, 0);
+        peers.bound(PeerTable.PONGED, config.pongedCapacity, config.pongedTtl);
+        peers.bound(PeerTable.MISSED, config.missedCapacity, config.missedTtl);
+        peers.listen(PeerTable.PONGED, pongedVersions);
+        rtts = new RttTable(config.pongedCapacity);
+        answerLimiter = new SourceLimiter(config.answerWidth, config.answerDepth, config.answerRate, config.answerBurst,
+                System.currentTimeMillis());
+        stats = new PingStats(String.valueOf(config.system.id), System.currentTimeMillis());
         LOG.info("{}initiating with self:{}",
                 new Object[]{logPrefix, self});
 
         subscribe(handleStart, control);
+        subscribe(handleStop, control);
         subscribe(handleSelfUpdate, selfUpdate);
         subscribe(handleStatusCheck, timer);
         subscribe(handlePingTimeout, timer);
@@ -98,23 +135,40 @@ public class NodeComp extends ComponentDefinition {
         subscribe(handlePing, network);
         subscribe(handlePong, network);
         subscribe(handlePinged, nodePort);
+        subscribe(handlePeerRtt, nodePort);
     }
 
     Handler handleStart = new Handler<Start>() {
         @Override
         public void handle(Start event) {
             LOG.info("{}starting", logPrefix);
+            if (config.metricsJmx) {
+                stats.register();
+            }
+            openCsv();
             scheduleStatusCheck();
             checkStart();
             trigger(CroupierUpdate.update(new NodeView()), croupierViewUpdate);
         }
     };
 
+    Handler handleStop = new Handler<Stop>() {
+        @Override
+        public void handle(Stop event) {
+            LOG.info("{}stopping", logPrefix);
+            cancelPing();
+            cancelStatusCheck();
+            stats.unregister();
+            closeCsv();
+        }
+    };
+
     Handler handleSelfUpdate = new Handler<SelfAddressUpdate>() {
         @Override
         public void handle(SelfAddressUpdate update) {
             LOG.info("{}update self:{}", logPrefix, update.self);
             self = update.self;
+            Arrays.fill(pongHeaders, null);
             checkStart();
         }
     };
@@ -132,11 +186,56 @@ public class NodeComp extends ComponentDefinition {
     Handler handleStatusCheck = new Handler<PeriodicStatusCheck>() {
         @Override
         public void handle(PeriodicStatusCheck event) {
-            LOG.info("{}pending:{} ponged:{} missed:{} unfeasible:{}",
-                    new Object[]{logPrefix, ping.keySet(), ponged.values(), missed.values(), unfeasible});
+            long now = System.currentTimeMillis();
+            stats.update(peers, answerLimiter.limited(), now);
+            if (csv != null) {
+                try {
+                    csv.write(stats.toCsv(now));
+                    csv.write('\n');
+                    csv.flush();
+                } catch (IOException ex) {
+                    LOG.warn("{}could not write metrics csv:{}, stopped writing it", logPrefix, ex.getMessage());
+                    closeCsv();
+                }
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("{}pending:{} ponged:{} missed:{} probe rate:{}/s",
+                        new Object[]{logPrefix, stats.getPending(), stats.getPonged(), stats.getMissed(), stats.getProbeRate()});
+            }
         }
     };
 
+    private void openCsv() {
+        if (config.metricsCsv.isEmpty()) {
+            return;
+        }
+        File file = new File(config.metricsCsv);
+        try {
+            boolean fresh = !file.exists() || file.length() == 0;
+            csv = new BufferedWriter(new FileWriter(file, true));
+            if (fresh) {
+                csv.write(PingStats.CSV_HEADER);
+                csv.write('\n');
+                csv.flush();
+            }
+        } catch (IOException ex) {
+            LOG.warn("{}could not open metrics csv:{}", logPrefix, ex.getMessage());
+            closeCsv();
+        }
+    }
+
+    private void closeCsv() {
+        if (csv == null) {
+            return;
+        }
+        try {
+            csv.close();
+        } catch (IOException ex) {
+            LOG.warn("{}could not close metrics csv:{}", logPrefix, ex.getMessage());
+        }
+        csv = null;
+    }
+
     Handler handleCroupierSample = new Handler<CroupierSample<NodeView>>() {
         @Override
         public void handle(CroupierSample<NodeView> sample) {
@@ -149,11 +248,12 @@ public class NodeComp extends ComponentDefinition {
 
     private void selectPingTargets(Set<Container<DecoratedAddress, NodeView>> sample) {
         for (Container<DecoratedAddress, NodeView> node : sample) {
-            if (ping.containsKey(node.getSource().getBase()) || ponged.containsKey(node.getSource().getBase())
-                    || missed.containsKey(node.getSource().getBase())) {
+            DecoratedAddress target = node.getSource();
+            if (peers.find(target.getBase()) != PeerTable.NONE) {
                 continue;
             }
-            ping.put(node.getSource().getBase(), Pair.with(node.getSource(), config.pingRetry));
+            peers.pend(target, config.pingRetry, pingClock() + spread * config.pacerTick);
+            spread = (int) ((spread + 1) % Math.max(1, config.pingTimeout / config.pacerTick));
         }
     }
 
@@ -161,37 +261,83 @@ public class NodeComp extends ComponentDefinition {
 
         @Override
         public void handle(PeriodicPing event) {
-            Iterator<Pair<DecoratedAddress, Integer>> it = ping.values().iterator();
-            while (it.hasNext()) {
-                Pair<DecoratedAddress, Integer> target = it.next();
-                if (ponged.containsKey(target.getValue0().getBase())) {
-                    it.remove();
-                    continue;
-                }
-                if (target.getValue1() > 0) {
-                    ping(target.getValue0());
+            if (!event.getTimeoutId().equals(pingTId)) {
+                //fired by a replaced timer before its cancel got through
+                return;
+            }
+            long clock = pingClock();
+            long now = System.currentTimeMillis();
+            peers.expire(now);
+            int id;
+            //targets due past the budget of this tick stay due for the next one, only sent pings take a token
+            while (pacer.tokens(clock) >= 1 && (id = peers.poll(clock)) != PeerTable.NONE) {
+                int retries = peers.retries(id);
+                DecoratedAddress target = peers.peer(id);
+                if (retries > 0) {
+                    pacer.tryTake(clock);
+                    ping(id, target);
+                    peers.retry(id, clock + timeout(target.getBase(), config.pingRetry - retries));
                 } else {
-                    it.remove();
-                    missed.put(target.getValue0().getBase(), target.getValue0());
+                    peers.put(target, PeerTable.MISSED, now);
+                    stats.missed();
                 }
             }
-            for (Map.Entry<BasicAddress, Pair<DecoratedAddress, Integer>> target : ping.entrySet()) {
-                ping.put(target.getKey(), Pair.with(target.getValue().getValue0(), target.getValue().getValue1() - 1));
-            }
         }
     };
 
-    private void ping(DecoratedAddress target) {
+    /**
+     * rto of the peer from its measured rtts, the configured ping timeout while
+     * none is known, doubled for each earlier attempt and kept within bounds
+     */
+    private long timeout(BasicAddress peer, int attempt) {
+        RttHistogram rtt = rtts.get(peer);
+        long rto = rtt == null ? -1 : rtt.timeoutMicros();
+        rto = rto < 0 ? config.pingTimeout : Math.max(config.rtoMin, (rto + 999) / 1000);
+        return Math.min(config.rtoMax, rto << Math.min(attempt, 30));
+    }
+
+    private void ping(int id, DecoratedAddress target) {
+        int seq = pingSeq++;
+        long now = clockMicros();
+        peers.pinged(id, seq, now);
         DecoratedHeader<DecoratedAddress> pingHeader = new DecoratedHeader(self, target, Transport.UDP);
-        ContentMsg pingMsg = new BasicContentMsg(pingHeader, new NodeMsg.Ping());
+        ContentMsg pingMsg = new BasicContentMsg(pingHeader, new NodeMsg.Ping(seq, now));
         LOG.debug("{}pinging from:{} to:{}", new Object[]{logPrefix, self, target});
         trigger(pingMsg, network);
+        stats.pingSent();
+    }
+
+    /**
+     * milliseconds since this component started, ping deadlines and pacing run
+     * on this clock, whatever the delays of the PeriodicPing ticks
+     */
+    private long pingClock() {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+
+    /**
+     * microseconds since this component started, for ping timestamps
+     */
+    private long clockMicros() {
+        return (System.nanoTime() - startNanos) / 1000;
     }
 
     Handler handlePinged = new Handler<Pinged.Request>() {
         @Override
         public void handle(Pinged.Request req) {
-            answer(req, req.answer(self, ponged.values()));
+            VersionedPeers.Delta delta = pongedVersions.delta(req.sinceVersion);
+            if (delta != null) {
+                answer(req, req.answer(self, delta));
+            } else {
+                answer(req, req.answer(self, pongedVersions.version(), pongedVersions.snapshot(peers, PeerTable.PONGED)));
+            }
+        }
+    };
+
+    Handler handlePeerRtt = new Handler<PeerRtt.Request>() {
+        @Override
+        public void handle(PeerRtt.Request req) {
+            answer(req, req.answer(rtts.fastest(req.limit)));
         }
     };
 
@@ -199,21 +345,49 @@ public class NodeComp extends ComponentDefinition {
             = new ClassMatchedHandler<NodeMsg.Ping, BasicContentMsg<DecoratedAddress, DecoratedHeader<DecoratedAddress>, NodeMsg.Ping>>() {
                 @Override
                 public void handle(NodeMsg.Ping content, BasicContentMsg<DecoratedAddress, DecoratedHeader<DecoratedAddress>, NodeMsg.Ping> container) {
-                    LOG.debug("{}ping from:{} on:{}",
-                            new Object[]{logPrefix, container.getSource(), container.getDestination()});
-                    DecoratedHeader<DecoratedAddress> pongHeader = new DecoratedHeader(self, container.getSource(), Transport.UDP);
-                    ContentMsg pongMsg = new BasicContentMsg(pongHeader, new NodeMsg.Pong());
+                    DecoratedAddress source = container.getSource();
+                    if (!answerLimiter.tryTake(source.getBase(), System.currentTimeMillis())) {
+                        LOG.trace("{}ping from:{} over rate", logPrefix, source);
+                        return;
+                    }
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("{}ping from:{} on:{}",
+                                new Object[]{logPrefix, source, container.getDestination()});
+                    }
+                    ContentMsg pongMsg = new BasicContentMsg(pongHeader(source), content.pong());
                     trigger(pongMsg, network);
                 }
             };
 
+    private DecoratedHeader<DecoratedAddress> pongHeader(DecoratedAddress target) {
+        int at = (target.getBase().hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(PONG_HEADERS));
+        DecoratedHeader<DecoratedAddress> header = pongHeaders[at];
+        if (header == null || !header.getDestination().equals(target)) {
+            header = new DecoratedHeader(self, target, Transport.UDP);
+            pongHeaders[at] = header;
+        }
+        return header;
+    }
+
     ClassMatchedHandler handlePong
             = new ClassMatchedHandler<NodeMsg.Pong, BasicContentMsg<DecoratedAddress, DecoratedHeader<DecoratedAddress>, NodeMsg.Pong>>() {
                 @Override
                 public void handle(NodeMsg.Pong content, BasicContentMsg<DecoratedAddress, DecoratedHeader<DecoratedAddress>, NodeMsg.Pong> container) {
                     LOG.debug("{}pong from:{} on:{}",
                             new Object[]{logPrefix, container.getSource(), container.getDestination()});
-                    ponged.put(container.getSource().getBase(), container.getSource());
+                    stats.pongReceived();
+                    //any pong shows the peer is alive, but only the pong of the last ping to a pending peer
+                    //is an rtt sample, older, unsolicited or replayed ones are ambiguous (Karn)
+                    int id = peers.find(container.getSource().getBase());
+                    long sent = (id == PeerTable.NONE ? PeerTable.NONE : peers.pingTime(id, content.seq));
+                    if (sent == PeerTable.NONE) {
+                        LOG.trace("{}pong from:{} seq:{} answers no outstanding ping",
+                                new Object[]{logPrefix, container.getSource(), content.seq});
+                    } else {
+                        rtts.record(container.getSource().getBase(), clockMicros() - sent);
+                        stats.firstPong(Math.max(0, pingClock() - peers.firstPing(id)));
+                    }
+                    peers.put(container.getSource(), PeerTable.PONGED, System.currentTimeMillis());
                 }
             };
 
@@ -228,14 +402,27 @@ public class NodeComp extends ComponentDefinition {
         }
     }
 
+    /**
+     * Replaces the ping timer if there is one, checkStart runs again on every
+     * self address update and a second timer would poll the targets twice per
+     * tick.
+     */
     private void schedulePing() {
-        SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(config.pingTimeout, config.pingTimeout);
+        cancelPing();
+        SchedulePeriodicTimeout spt = new SchedulePeriodicTimeout(config.pacerTick, config.pacerTick);
         PeriodicPing pp = new PeriodicPing(spt);
         spt.setTimeoutEvent(pp);
         trigger(spt, timer);
         pingTId = pp.getTimeoutId();
     }
 
+    private void cancelPing() {
+        if (pingTId != null) {
+            trigger(new CancelPeriodicTimeout(pingTId), timer);
+            pingTId = null;
+        }
+    }
+
     public static class PeriodicPing extends Timeout {
 
         public PeriodicPing(SchedulePeriodicTimeout spt) {
@@ -251,6 +438,13 @@ public class NodeComp extends ComponentDefinition {
         statusTId = psc.getTimeoutId();
     }
 
+    private void cancelStatusCheck() {
+        if (statusTId != null) {
+            trigger(new CancelPeriodicTimeout(statusTId), timer);
+            statusTId = null;
+        }
+    }
+
     public static class PeriodicStatusCheck extends Timeout {
 
         public PeriodicStatusCheck(SchedulePeriodicTimeout spt) {
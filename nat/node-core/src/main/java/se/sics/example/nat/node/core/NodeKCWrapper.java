@@ -28,19 +28,62 @@ import se.sics.p2ptoolbox.util.config.impl.SystemKCWrapper;
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public class NodeKCWrapper {
-    public final long internalStatusCheck = 5000;
-    public final int pingRetry = 5;
-    public final long pingTimeout = 1000;
-    
     public final KConfigCore configCore;
     public final SystemKCWrapper system;
     public final ByteBuffer globalCroupier;
     public final ByteBuffer pingService;
+    public final long pingTimeout;
+    public final int pingRetry;
+    public final long rtoMin;
+    public final long rtoMax;
+    public final int pongedCapacity;
+    public final long pongedTtl;
+    public final int pongedHistory;
+    public final int missedCapacity;
+    public final long missedTtl;
+    public final long pacerTick;
+    public final double pacerRate;
+    public final int pacerBurst;
+    public final double answerRate;
+    public final int answerBurst;
+    public final int answerWidth;
+    public final int answerDepth;
+    public final long internalStatusCheck;
+    public final boolean metricsJmx;
+    /**
+     * empty for no csv
+     */
+    public final String metricsCsv;
     
     public NodeKCWrapper(KConfigCore configCore) {
         this.configCore = configCore;
         system = new SystemKCWrapper(configCore);
         globalCroupier = ByteBuffer.wrap(Ints.toByteArray(KConfigHelper.read(configCore, NodeKConfig.globalCroupier)));
         pingService = ByteBuffer.wrap(Ints.toByteArray(KConfigHelper.read(configCore, NodeKConfig.pingService)));
+        pingTimeout = KConfigHelper.read(configCore, NodeKConfig.pingTimeout);
+        pingRetry = KConfigHelper.read(configCore, NodeKConfig.pingRetry);
+        if (pingRetry < 0 || pingRetry > Byte.MAX_VALUE) {
+            throw new RuntimeException("bad ping retries:" + pingRetry);
+        }
+        rtoMin = KConfigHelper.read(configCore, NodeKConfig.rtoMin);
+        rtoMax = KConfigHelper.read(configCore, NodeKConfig.rtoMax);
+        if (rtoMin <= 0 || rtoMin > rtoMax) {
+            throw new RuntimeException("bad ping rto min:" + rtoMin + " max:" + rtoMax);
+        }
+        pongedCapacity = KConfigHelper.read(configCore, NodeKConfig.pongedCapacity);
+        pongedTtl = KConfigHelper.read(configCore, NodeKConfig.pongedTtl);
+        pongedHistory = KConfigHelper.read(configCore, NodeKConfig.pongedHistory);
+        missedCapacity = KConfigHelper.read(configCore, NodeKConfig.missedCapacity);
+        missedTtl = KConfigHelper.read(configCore, NodeKConfig.missedTtl);
+        pacerTick = KConfigHelper.read(configCore, NodeKConfig.pacerTick);
+        pacerRate = KConfigHelper.read(configCore, NodeKConfig.pacerRate);
+        pacerBurst = KConfigHelper.read(configCore, NodeKConfig.pacerBurst);
+        answerRate = KConfigHelper.read(configCore, NodeKConfig.answerRate);
+        answerBurst = KConfigHelper.read(configCore, NodeKConfig.answerBurst);
+        answerWidth = KConfigHelper.read(configCore, NodeKConfig.answerWidth);
+        answerDepth = KConfigHelper.read(configCore, NodeKConfig.answerDepth);
+        internalStatusCheck = KConfigHelper.read(configCore, NodeKConfig.metricsPeriod);
+        metricsJmx = KConfigHelper.read(configCore, NodeKConfig.metricsJmx);
+        metricsCsv = KConfigHelper.read(configCore, NodeKConfig.metricsCsv);
     }
 }
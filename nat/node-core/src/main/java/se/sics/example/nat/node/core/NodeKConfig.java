@@ -30,6 +30,25 @@ public class NodeKConfig implements KConfigLevel {
 
     public final static Basic<Integer> globalCroupier = new Basic("services.globalCroupier", Integer.class, new NodeKConfig());
     public final static Basic<Integer> pingService = new Basic("services.ping", Integer.class, new NodeKConfig());
+    public final static Basic<Long> pingTimeout = new Basic("node.ping.timeout", Long.class, new NodeKConfig());
+    public final static Basic<Integer> pingRetry = new Basic("node.ping.retries", Integer.class, new NodeKConfig());
+    public final static Basic<Long> rtoMin = new Basic("node.ping.rto.min", Long.class, new NodeKConfig());
+    public final static Basic<Long> rtoMax = new Basic("node.ping.rto.max", Long.class, new NodeKConfig());
+    public final static Basic<Integer> pongedCapacity = new Basic("node.ping.ponged.capacity", Integer.class, new NodeKConfig());
+    public final static Basic<Long> pongedTtl = new Basic("node.ping.ponged.ttl", Long.class, new NodeKConfig());
+    public final static Basic<Integer> pongedHistory = new Basic("node.ping.ponged.history", Integer.class, new NodeKConfig());
+    public final static Basic<Integer> missedCapacity = new Basic("node.ping.missed.capacity", Integer.class, new NodeKConfig());
+    public final static Basic<Long> missedTtl = new Basic("node.ping.missed.ttl", Long.class, new NodeKConfig());
+    public final static Basic<Long> pacerTick = new Basic("node.ping.pacer.tick", Long.class, new NodeKConfig());
+    public final static Basic<Double> pacerRate = new Basic("node.ping.pacer.rate", Double.class, new NodeKConfig());
+    public final static Basic<Integer> pacerBurst = new Basic("node.ping.pacer.burst", Integer.class, new NodeKConfig());
+    public final static Basic<Double> answerRate = new Basic("node.ping.answer.rate", Double.class, new NodeKConfig());
+    public final static Basic<Integer> answerBurst = new Basic("node.ping.answer.burst", Integer.class, new NodeKConfig());
+    public final static Basic<Integer> answerWidth = new Basic("node.ping.answer.width", Integer.class, new NodeKConfig());
+    public final static Basic<Integer> answerDepth = new Basic("node.ping.answer.depth", Integer.class, new NodeKConfig());
+    public final static Basic<Long> metricsPeriod = new Basic("node.metrics.period", Long.class, new NodeKConfig());
+    public final static Basic<Boolean> metricsJmx = new Basic("node.metrics.jmx", Boolean.class, new NodeKConfig());
+    public final static Basic<String> metricsCsv = new Basic("node.metrics.csv", String.class, new NodeKConfig());
 
     @Override
     public Set<String> canWrite() {
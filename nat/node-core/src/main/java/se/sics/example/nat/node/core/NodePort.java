@@ -20,6 +20,7 @@
 package se.sics.example.nat.node.core;
 
 import se.sics.kompics.PortType;
+import se.sics.example.nat.node.event.PeerRtt;
 import se.sics.example.nat.node.event.Pinged;
 
 /**
@@ -30,5 +31,7 @@ public class NodePort extends PortType {
     {
         request(Pinged.Request.class);
         indication(Pinged.Response.class);
+        request(PeerRtt.Request.class);
+        indication(PeerRtt.Response.class);
     }
 }
@@ -20,37 +20,76 @@
 package se.sics.example.nat.node.event;
 
 import java.util.Collection;
-import java.util.List;
-import java.util.Set;
+import java.util.Collections;
 import java.util.UUID;
+import se.sics.example.nat.node.util.VersionedPeers;
 import se.sics.kompics.Direct;
 import se.sics.p2ptoolbox.util.network.impl.DecoratedAddress;
 
 /**
+ * Peers that answered a ping. A request without a version gets the full,
+ * immutable view. A request with the version of an earlier response gets only
+ * the peers added and removed since, unless those changes are no longer kept,
+ * in which case the full view is sent instead.
+ *
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public class Pinged {
+
+    public static final long NO_VERSION = -1;
+
     public static class Request extends Direct.Request<Response> {
         public final UUID id;
+        public final long sinceVersion;
+
         public Request(UUID id) {
+            this(id, NO_VERSION);
+        }
+
+        public Request(UUID id, long sinceVersion) {
             super();
             this.id = id;
+            this.sinceVersion = sinceVersion;
         }
-        
-        public Response answer(DecoratedAddress self, Collection<DecoratedAddress> pinged) {
-            return new Response(id, self, pinged);
+
+        public Response answer(DecoratedAddress self, long version, Collection<DecoratedAddress> pinged) {
+            return new Response(id, self, version, NO_VERSION, pinged,
+                    Collections.<DecoratedAddress>emptyList(), Collections.<DecoratedAddress>emptyList());
+        }
+
+        public Response answer(DecoratedAddress self, VersionedPeers.Delta delta) {
+            return new Response(id, self, delta.version, delta.since, null, delta.added, delta.removed);
         }
     }
-    
+
     public static class Response implements Direct.Response {
         public final UUID id;
         public final DecoratedAddress self;
+        public final long version;
+        /**
+         * version the delta applies to, {@link #NO_VERSION} for a full view
+         */
+        public final long sinceVersion;
+        /**
+         * full view, null for a delta
+         */
         public final Collection<DecoratedAddress> pinged;
-        
-        public Response(UUID id, DecoratedAddress self, Collection<DecoratedAddress> pinged) {
+        public final Collection<DecoratedAddress> added;
+        public final Collection<DecoratedAddress> removed;
+
+        public Response(UUID id, DecoratedAddress self, long version, long sinceVersion, Collection<DecoratedAddress> pinged,
+                Collection<DecoratedAddress> added, Collection<DecoratedAddress> removed) {
             this.id = id;
             this.self = self;
+            this.version = version;
+            this.sinceVersion = sinceVersion;
             this.pinged = pinged;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        public boolean isDelta() {
+            return sinceVersion != NO_VERSION;
         }
     }
 }
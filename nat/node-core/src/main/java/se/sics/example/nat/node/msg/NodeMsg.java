@@ -20,13 +20,39 @@
 package se.sics.example.nat.node.msg;
 
 /**
+ * A pong echoes the sequence number and timestamp of the ping it answers. The
+ * pinger only trusts the sequence number, matching it against the ping it
+ * sent last, and measures the round trip from its own record of the send
+ * time. A pong that matches no outstanding ping still marks its sender alive,
+ * it only gives no round trip.
  *
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public class NodeMsg {
     public static class Ping {
+        public final int seq;
+        /**
+         * microseconds on the clock of the pinger
+         */
+        public final long timestamp;
+
+        public Ping(int seq, long timestamp) {
+            this.seq = seq;
+            this.timestamp = timestamp;
+        }
+
+        public Pong pong() {
+            return new Pong(seq, timestamp);
+        }
     }
     
     public static class Pong {
+        public final int seq;
+        public final long timestamp;
+
+        public Pong(int seq, long timestamp) {
+            this.seq = seq;
+            this.timestamp = timestamp;
+        }
     }
 }
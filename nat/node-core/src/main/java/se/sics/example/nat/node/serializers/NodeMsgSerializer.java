@@ -24,6 +24,10 @@ import se.sics.example.nat.node.msg.NodeMsg;
 import se.sics.kompics.network.netty.serialization.Serializer;
 
 /**
+ * Sequence numbers and timestamps are written as unsigned varints, 7 bits a
+ * byte. Timestamps count from the start of the pinger, so a ping or pong is
+ * around 8 bytes instead of a fixed 12.
+ *
  * @author Alex Ormenisan <aaor@kth.se>
  */
 public class NodeMsgSerializer {
@@ -42,11 +46,16 @@ public class NodeMsgSerializer {
 
         @Override
         public void toBinary(Object o, ByteBuf bb) {
+            NodeMsg.Ping ping = (NodeMsg.Ping) o;
+            writeVarLong(bb, ping.seq & 0xFFFFFFFFL);
+            writeVarLong(bb, ping.timestamp);
         }
 
         @Override
         public NodeMsg.Ping fromBinary(ByteBuf bb, Optional<Object> optnl) {
-            return new NodeMsg.Ping();
+            int seq = (int) readVarLong(bb);
+            long timestamp = readVarLong(bb);
+            return new NodeMsg.Ping(seq, timestamp);
         }
     }
     
@@ -65,11 +74,36 @@ public class NodeMsgSerializer {
 
         @Override
         public void toBinary(Object o, ByteBuf bb) {
+            NodeMsg.Pong pong = (NodeMsg.Pong) o;
+            writeVarLong(bb, pong.seq & 0xFFFFFFFFL);
+            writeVarLong(bb, pong.timestamp);
         }
 
         @Override
         public NodeMsg.Pong fromBinary(ByteBuf bb, Optional<Object> optnl) {
-            return new NodeMsg.Pong();
+            int seq = (int) readVarLong(bb);
+            long timestamp = readVarLong(bb);
+            return new NodeMsg.Pong(seq, timestamp);
+        }
+    }
+
+    static void writeVarLong(ByteBuf bb, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bb.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        bb.writeByte((int) value);
+    }
+
+    static long readVarLong(ByteBuf bb) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = bb.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
         }
+        throw new RuntimeException("malformed varint");
     }
 }
\ No newline at end of file
@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import se.sics.p2ptoolbox.util.network.impl.BasicAddress;
+import se.sics.p2ptoolbox.util.network.impl.DecoratedAddress;
+
+/**
+ * Every peer the ping service knows of, in one table. A peer is an entry id
+ * that stays the same while it is known; its address, state, pings left,
+ * timestamp and last ping sent are kept in parallel primitive arrays under
+ * that id, found through
+ * an open addressing index on the base address. Per peer that is a few dozen
+ * bytes next to the address itself, where a map per state costs an entry and
+ * a value object each.
+ * <p>
+ * The entries of each state are linked in the order they entered it, so a
+ * state can be bounded like a cache: over capacity the oldest entry is
+ * dropped, and entries older than the ttl expire. A dropped peer is simply no
+ * longer known, so it can be probed again.
+ * <p>
+ * {@link #PENDING} entries are linked on a hashed timer wheel instead, through
+ * the same links, with the deadline of their next ping as timestamp.
+ * {@link #poll(long)} only walks the slots of the ticks that passed, so the
+ * cost of a tick grows with the entries due, not with the entries pending.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class PeerTable {
+
+    public static final int NONE = -1;
+    //links of a pending entry polled off the wheel and not rescheduled yet
+    private static final int OFF = -2;
+
+    public static final byte FREE = 0;
+    public static final byte PENDING = 1;
+    public static final byte PONGED = 2;
+    public static final byte MISSED = 3;
+    public static final byte UNFEASIBLE = 4;
+    private static final int STATES = 5;
+
+    //entry id + 1, 0 for an empty slot
+    private int[] index = new int[128];
+    private int mask = index.length - 1;
+
+    private DecoratedAddress[] peers = new DecoratedAddress[64];
+    private byte[] states = new byte[64];
+    private byte[] retries = new byte[64];
+    //time the entry entered its state, deadline of the next ping if pending
+    private long[] stamps = new long[64];
+    //tick of the first ping of a pending entry, counted from the start tick
+    private int[] firstPings = new int[64];
+    //sequence number and send time of the last ping of a pending entry, time NONE before the first
+    private int[] pingSeqs = new int[64];
+    private long[] pingTimes = new long[64];
+    private int[] older = new int[64];
+    //free ids are linked through younger too
+    private int[] younger = new int[64];
+    private int free = NONE;
+    private int used = 0;
+    private int size = 0;
+
+    private final int[] oldest = new int[STATES];
+    private final int[] youngest = new int[STATES];
+    private final int[] counts = new int[STATES];
+    private final int[] capacities = new int[STATES];
+    private final long[] ttls = new long[STATES];
+    private final long[] evictions = new long[STATES];
+    private final long[] expirations = new long[STATES];
+    private final Listener[] listeners = new Listener[STATES];
+
+    private final long tickMs;
+    private final long startTick;
+    private final int wheelMask;
+    private final int[] heads;
+    private final int[] tails;
+    //tick being drained, earlier ticks are done
+    private long cursor;
+    //next entry of the cursor slot to look at and the poll time it was found for
+    private int scan = NONE;
+    private long scanTime = Long.MIN_VALUE;
+
+    /**
+     * @param tickMs tick of the ping wheel
+     * @param wheelSlots rounded up to a power of two
+     * @param now start of the ping wheel, in the unit of the deadlines
+     */
+    public PeerTable(long tickMs, int wheelSlots, long now) {
+        if (tickMs <= 0 || wheelSlots <= 0) {
+            throw new RuntimeException("bad wheel tick:" + tickMs + " slots:" + wheelSlots);
+        }
+        int wheelSize = Integer.highestOneBit(wheelSlots);
+        if (wheelSize < wheelSlots) {
+            wheelSize = wheelSize << 1;
+        }
+        this.tickMs = tickMs;
+        this.wheelMask = wheelSize - 1;
+        this.heads = new int[wheelSize];
+        this.tails = new int[wheelSize];
+        this.cursor = now / tickMs;
+        this.startTick = cursor;
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+        Arrays.fill(oldest, NONE);
+        Arrays.fill(youngest, NONE);
+        Arrays.fill(capacities, Integer.MAX_VALUE);
+        Arrays.fill(ttls, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param state any but {@link #PENDING}, which is bounded by the pings
+     * left
+     * @param ttl in ms, of the timestamps given to {@link #put}
+     */
+    public void bound(byte state, int capacity, long ttl) {
+        if (state <= PENDING || state >= STATES || capacity <= 0 || ttl <= 0) {
+            throw new RuntimeException("bad peer table bound state:" + state + " capacity:" + capacity + " ttl:" + ttl);
+        }
+        capacities[state] = capacity;
+        ttls[state] = ttl;
+    }
+
+    /**
+     * @param listener hears of the peers entering and leaving the state, not
+     * of refreshes
+     */
+    public void listen(byte state, Listener listener) {
+        listeners[state] = listener;
+    }
+
+    /**
+     * @return the entry id of the peer, {@link #NONE} if it is not known
+     */
+    public int find(BasicAddress peer) {
+        int slot = hash(peer) & mask;
+        while (index[slot] != 0) {
+            int id = index[slot] - 1;
+            if (peers[id].getBase().equals(peer)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * Moves the peer, known or not, to {@link #PENDING}.
+     *
+     * @param retries pings left, at most {@value java.lang.Byte#MAX_VALUE}
+     * @param firstPing deadline of the first ping
+     * @return the entry id of the peer
+     */
+    public int pend(DecoratedAddress peer, int retries, long firstPing) {
+        if (retries < 0 || retries > Byte.MAX_VALUE) {
+            throw new RuntimeException("bad retries:" + retries);
+        }
+        int id = enter(peer, PENDING);
+        counts[PENDING]++;
+        this.retries[id] = (byte) retries;
+        firstPings[id] = (int) Math.min(Integer.MAX_VALUE, Math.max(0, firstPing / tickMs - startTick));
+        pingTimes[id] = NONE;
+        schedule(id, firstPing);
+        return id;
+    }
+
+    /**
+     * Moves the peer, known or not, to the young end of the state, with the
+     * address given.
+     *
+     * @param state any but {@link #PENDING}, see {@link #pend}
+     * @return the entry id of the peer
+     */
+    public int put(DecoratedAddress peer, byte state, long now) {
+        if (state <= PENDING || state >= STATES) {
+            throw new RuntimeException("bad peer table state:" + state);
+        }
+        int id = enter(peer, state);
+        stamps[id] = now;
+        link(id);
+        if (counts[state] > capacities[state]) {
+            evictions[state]++;
+            remove(oldest[state]);
+        }
+        return id;
+    }
+
+    /**
+     * @return the next pending entry due at now, {@link #NONE} if none. The
+     * caller either {@link #retry}s it or moves it to another state.
+     */
+    public int poll(long now) {
+        long nowTick = now / tickMs;
+        if (now != scanTime) {
+            scan = heads[(int) (cursor & wheelMask)];
+            scanTime = now;
+        }
+        while (true) {
+            while (scan != NONE) {
+                int id = scan;
+                scan = younger[id];
+                if (stamps[id] <= now) {
+                    unschedule(id);
+                    return id;
+                }
+            }
+            if (cursor >= nowTick) {
+                //entries scheduled from now on are looked for from the head again
+                scanTime = Long.MIN_VALUE;
+                return NONE;
+            }
+            cursor++;
+            scan = heads[(int) (cursor & wheelMask)];
+        }
+    }
+
+    /**
+     * Uses up one ping of the pending entry, the next one is due at deadline.
+     */
+    public void retry(int id, long deadline) {
+        if (older[id] != OFF) {
+            unschedule(id);
+        }
+        retries[id]--;
+        schedule(id, deadline);
+    }
+
+    /**
+     * Records the ping just sent to the pending entry, the only one a pong is
+     * accepted for from now on.
+     *
+     * @param time send time, not negative
+     */
+    public void pinged(int id, int seq, long time) {
+        pingSeqs[id] = seq;
+        pingTimes[id] = time;
+    }
+
+    /**
+     * @return the send time of the last ping of the pending entry if seq is
+     * its sequence number, {@link #NONE} if seq answers no outstanding ping
+     */
+    public long pingTime(int id, int seq) {
+        if (states[id] != PENDING || pingTimes[id] == NONE || pingSeqs[id] != seq) {
+            return NONE;
+        }
+        return pingTimes[id];
+    }
+
+    public DecoratedAddress peer(int id) {
+        return peers[id];
+    }
+
+    public byte state(int id) {
+        return states[id];
+    }
+
+    public int retries(int id) {
+        return retries[id];
+    }
+
+    /**
+     * @return the time the entry entered its state, the deadline of its next
+     * ping if pending
+     */
+    public long stamp(int id) {
+        return stamps[id];
+    }
+
+    /**
+     * @return the deadline of the first ping of the entry while pending,
+     * rounded down to its tick
+     */
+    public long firstPing(int id) {
+        return (startTick + firstPings[id]) * tickMs;
+    }
+
+    /**
+     * @return the removed peer, null if the id is not in use
+     */
+    public DecoratedAddress remove(int id) {
+        byte state = states[id];
+        if (state == FREE) {
+            return null;
+        }
+        DecoratedAddress peer = peers[id];
+        detach(id);
+        unindex(id);
+        peers[id] = null;
+        states[id] = FREE;
+        younger[id] = free;
+        free = id;
+        size--;
+        if (listeners[state] != null) {
+            listeners[state].removed(peer);
+        }
+        return peer;
+    }
+
+    /**
+     * Drops the entries older than the ttl of their state, only looking at
+     * the old end of each state.
+     *
+     * @return the number of entries dropped
+     */
+    public int expire(long now) {
+        int expired = 0;
+        for (byte state = PONGED; state < STATES; state++) {
+            while (oldest[state] != NONE && now - stamps[oldest[state]] >= ttls[state]) {
+                remove(oldest[state]);
+                expirations[state]++;
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * @return a copy of the peers in the state, oldest first, in id order if
+     * pending
+     */
+    public List<DecoratedAddress> peers(byte state) {
+        List<DecoratedAddress> copy = new ArrayList<>(counts[state]);
+        if (state == PENDING) {
+            for (int id = 0; id < used; id++) {
+                if (states[id] == PENDING) {
+                    copy.add(peers[id]);
+                }
+            }
+        } else {
+            for (int id = oldest[state]; id != NONE; id = younger[id]) {
+                copy.add(peers[id]);
+            }
+        }
+        return copy;
+    }
+
+    public int size(byte state) {
+        return counts[state];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return entries of the state dropped for capacity
+     */
+    public long evictions(byte state) {
+        return evictions[state];
+    }
+
+    /**
+     * @return entries of the state dropped for age
+     */
+    public long expirations(byte state) {
+        return expirations[state];
+    }
+
+    /**
+     * Finds or allocates the entry of the peer and takes it out of its current
+     * state, telling the listeners if the state changes.
+     */
+    private int enter(DecoratedAddress peer, byte state) {
+        int id = find(peer.getBase());
+        byte previous = FREE;
+        if (id == NONE) {
+            id = allocate(peer);
+        } else {
+            previous = states[id];
+            detach(id);
+        }
+        peers[id] = peer;
+        states[id] = state;
+        if (previous != state) {
+            if (previous != FREE && listeners[previous] != null) {
+                listeners[previous].removed(peer);
+            }
+            if (listeners[state] != null) {
+                listeners[state].added(peer);
+            }
+        }
+        return id;
+    }
+
+    private int allocate(DecoratedAddress peer) {
+        int id;
+        if (free != NONE) {
+            id = free;
+            free = younger[id];
+        } else {
+            id = used++;
+            if (id == peers.length) {
+                grow(2 * id);
+            }
+        }
+        if (2 * (size + 1) > index.length) {
+            reindex(2 * index.length);
+        }
+        int slot = hash(peer.getBase()) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = id + 1;
+        size++;
+        return id;
+    }
+
+    private void grow(int capacity) {
+        peers = Arrays.copyOf(peers, capacity);
+        states = Arrays.copyOf(states, capacity);
+        retries = Arrays.copyOf(retries, capacity);
+        stamps = Arrays.copyOf(stamps, capacity);
+        firstPings = Arrays.copyOf(firstPings, capacity);
+        pingSeqs = Arrays.copyOf(pingSeqs, capacity);
+        pingTimes = Arrays.copyOf(pingTimes, capacity);
+        older = Arrays.copyOf(older, capacity);
+        younger = Arrays.copyOf(younger, capacity);
+    }
+
+    private void reindex(int capacity) {
+        index = new int[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < used; id++) {
+            if (states[id] != FREE) {
+                int slot = hash(peers[id].getBase()) & mask;
+                while (index[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                index[slot] = id + 1;
+            }
+        }
+    }
+
+    /**
+     * Backward shift deletion, so lookups never need tombstones.
+     */
+    private void unindex(int id) {
+        int hole = hash(peers[id].getBase()) & mask;
+        while (index[hole] != id + 1) {
+            hole = (hole + 1) & mask;
+        }
+        int slot = (hole + 1) & mask;
+        while (index[slot] != 0) {
+            int home = hash(peers[index[slot] - 1].getBase()) & mask;
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                index[hole] = index[slot];
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        index[hole] = 0;
+    }
+
+    private void detach(int id) {
+        if (states[id] == PENDING) {
+            if (older[id] != OFF) {
+                unschedule(id);
+            }
+            counts[PENDING]--;
+        } else {
+            unlink(id);
+        }
+    }
+
+    private void link(int id) {
+        byte state = states[id];
+        older[id] = youngest[state];
+        younger[id] = NONE;
+        if (youngest[state] == NONE) {
+            oldest[state] = id;
+        } else {
+            younger[youngest[state]] = id;
+        }
+        youngest[state] = id;
+        counts[state]++;
+    }
+
+    private void unlink(int id) {
+        byte state = states[id];
+        if (older[id] == NONE) {
+            oldest[state] = younger[id];
+        } else {
+            younger[older[id]] = younger[id];
+        }
+        if (younger[id] == NONE) {
+            youngest[state] = older[id];
+        } else {
+            older[younger[id]] = older[id];
+        }
+        counts[state]--;
+    }
+
+    /**
+     * A deadline already past makes the entry due at the next poll. It is
+     * stamped with the start of the current tick then, so its wheel slot
+     * always follows from its stamp.
+     */
+    private void schedule(int id, long deadline) {
+        long stamp = Math.max(deadline, cursor * tickMs);
+        int slot = (int) ((stamp / tickMs) & wheelMask);
+        stamps[id] = stamp;
+        older[id] = tails[slot];
+        younger[id] = NONE;
+        if (tails[slot] == NONE) {
+            heads[slot] = id;
+        } else {
+            younger[tails[slot]] = id;
+        }
+        tails[slot] = id;
+    }
+
+    private void unschedule(int id) {
+        int slot = (int) ((stamps[id] / tickMs) & wheelMask);
+        if (scan == id) {
+            scan = younger[id];
+        }
+        if (older[id] == NONE) {
+            heads[slot] = younger[id];
+        } else {
+            younger[older[id]] = younger[id];
+        }
+        if (younger[id] == NONE) {
+            tails[slot] = older[id];
+        } else {
+            older[younger[id]] = older[id];
+        }
+        older[id] = OFF;
+        younger[id] = OFF;
+    }
+
+    private static int hash(BasicAddress peer) {
+        int h = peer.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public static interface Listener {
+
+        public void added(DecoratedAddress peer);
+
+        public void removed(DecoratedAddress peer);
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and gauges of the ping service of one node. Counters are bumped as
+ * things happen, gauges and rates are refreshed by {@link #update} once a
+ * period, so reading them never walks the peers. Registered as a
+ * {@link PingStatsMXBean} under {@value #DOMAIN}, and printable as one csv
+ * line per period under {@link #CSV_HEADER}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class PingStats implements PingStatsMXBean {
+
+    public static final String DOMAIN = "se.sics.example.nat.node";
+    public static final String CSV_HEADER = "time,node,pingsSent,pongsReceived,misses,pingsOverRate,"
+            + "pending,ponged,missed,pongedEvictions,pongedExpirations,missedEvictions,missedExpirations,"
+            + "probeRate,firstPongP50Ms,firstPongP99Ms";
+
+    private final String node;
+    private final AtomicLong pingsSent = new AtomicLong();
+    private final AtomicLong pongsReceived = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long pingsOverRate = 0;
+    private volatile int pending = 0;
+    private volatile int ponged = 0;
+    private volatile int missed = 0;
+    private volatile long pongedEvictions = 0;
+    private volatile long pongedExpirations = 0;
+    private volatile long missedEvictions = 0;
+    private volatile long missedExpirations = 0;
+    private volatile double probeRate = 0;
+    private volatile long firstPongP50 = 0;
+    private volatile long firstPongP99 = 0;
+
+    //only touched by the updating thread
+    private final RttHistogram firstPongs = new RttHistogram();
+    private long periodPings = 0;
+    private long periodStart;
+    private ObjectName registered;
+
+    public PingStats(String node, long now) {
+        this.node = node;
+        this.periodStart = now;
+    }
+
+    public void pingSent() {
+        pingsSent.incrementAndGet();
+    }
+
+    public void pongReceived() {
+        pongsReceived.incrementAndGet();
+    }
+
+    public void missed() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Only from the updating thread.
+     */
+    public void firstPong(long ms) {
+        firstPongs.record(ms * 1000);
+    }
+
+    /**
+     * Refreshes the gauges and closes the period started by the previous
+     * update.
+     */
+    public void update(PeerTable peers, long pingsOverRate, long now) {
+        this.pingsOverRate = pingsOverRate;
+        pending = peers.size(PeerTable.PENDING);
+        ponged = peers.size(PeerTable.PONGED);
+        missed = peers.size(PeerTable.MISSED);
+        pongedEvictions = peers.evictions(PeerTable.PONGED);
+        pongedExpirations = peers.expirations(PeerTable.PONGED);
+        missedEvictions = peers.evictions(PeerTable.MISSED);
+        missedExpirations = peers.expirations(PeerTable.MISSED);
+        long pings = pingsSent.get();
+        if (now > periodStart) {
+            probeRate = (pings - periodPings) * 1000.0 / (now - periodStart);
+        }
+        periodPings = pings;
+        periodStart = now;
+        firstPongP50 = firstPongs.percentile(0.5) / 1000;
+        firstPongP99 = firstPongs.percentile(0.99) / 1000;
+    }
+
+    public String toCsv(long now) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(now).append(',').append(node).append(',')
+                .append(getPingsSent()).append(',').append(getPongsReceived()).append(',')
+                .append(getMisses()).append(',').append(pingsOverRate).append(',')
+                .append(pending).append(',').append(ponged).append(',').append(missed).append(',')
+                .append(pongedEvictions).append(',').append(pongedExpirations).append(',')
+                .append(missedEvictions).append(',').append(missedExpirations).append(',')
+                .append(String.format(Locale.ROOT, "%.1f", probeRate)).append(',')
+                .append(firstPongP50).append(',').append(firstPongP99);
+        return sb.toString();
+    }
+
+    /**
+     * Registers as {@code DOMAIN:type=PingService,node=<node>}, replacing a
+     * bean left by an earlier instance of the node.
+     */
+    public synchronized void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=PingService,node=" + ObjectName.quote(node));
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException ex) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+            registered = name;
+        } catch (JMException ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    public synchronized void unregister() {
+        if (registered == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+        } catch (JMException ex) {
+            //already gone
+        }
+        registered = null;
+    }
+
+    @Override
+    public long getPingsSent() {
+        return pingsSent.get();
+    }
+
+    @Override
+    public long getPongsReceived() {
+        return pongsReceived.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getPingsOverRate() {
+        return pingsOverRate;
+    }
+
+    @Override
+    public int getPending() {
+        return pending;
+    }
+
+    @Override
+    public int getPonged() {
+        return ponged;
+    }
+
+    @Override
+    public int getMissed() {
+        return missed;
+    }
+
+    @Override
+    public long getPongedEvictions() {
+        return pongedEvictions;
+    }
+
+    @Override
+    public long getPongedExpirations() {
+        return pongedExpirations;
+    }
+
+    @Override
+    public long getMissedEvictions() {
+        return missedEvictions;
+    }
+
+    @Override
+    public long getMissedExpirations() {
+        return missedExpirations;
+    }
+
+    @Override
+    public double getProbeRate() {
+        return probeRate;
+    }
+
+    @Override
+    public long getFirstPongP50Ms() {
+        return firstPongP50;
+    }
+
+    @Override
+    public long getFirstPongP99Ms() {
+        return firstPongP99;
+    }
+}
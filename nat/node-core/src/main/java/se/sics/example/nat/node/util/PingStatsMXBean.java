@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+/**
+ * JMX view of the ping service of one node, see {@link PingStats}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public interface PingStatsMXBean {
+
+    public long getPingsSent();
+
+    public long getPongsReceived();
+
+    public long getMisses();
+
+    /**
+     * @return pings from others left unanswered for their source rate
+     */
+    public long getPingsOverRate();
+
+    public int getPending();
+
+    public int getPonged();
+
+    public int getMissed();
+
+    public long getPongedEvictions();
+
+    public long getPongedExpirations();
+
+    public long getMissedEvictions();
+
+    public long getMissedExpirations();
+
+    /**
+     * @return pings sent a second over the last period
+     */
+    public double getProbeRate();
+
+    /**
+     * @return ms from the first ping of a peer to its first pong, in ping
+     * ticks
+     */
+    public long getFirstPongP50Ms();
+
+    public long getFirstPongP99Ms();
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+import se.sics.p2ptoolbox.util.network.impl.BasicAddress;
+
+/**
+ * Round trip times of one peer, in microseconds. Every power of two is split
+ * in {@value #SUB_BUCKETS} buckets, so percentiles are within a quarter of the
+ * real value, in a fixed {@value #BUCKETS} ints per peer whatever the number
+ * of samples. Next to the histogram the smoothed rtt and its mean deviation
+ * are kept the way TCP does, to derive a retransmission timeout from.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class RttHistogram {
+
+    public static final int SUB_BUCKETS = 4;
+    //up to 2^30us, ~18 minutes
+    public static final int BUCKETS = 31 * SUB_BUCKETS;
+
+    private final int[] buckets = new int[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = 0;
+    private long last = 0;
+    private long smoothed = -1;
+    private long deviation = 0;
+
+    public void record(long micros) {
+        if (micros < 0) {
+            return;
+        }
+        buckets[bucket(micros)]++;
+        count++;
+        sum += micros;
+        min = Math.min(min, micros);
+        max = Math.max(max, micros);
+        last = micros;
+        if (smoothed < 0) {
+            smoothed = micros;
+            deviation = micros / 2;
+        } else {
+            deviation = (3 * deviation + Math.abs(smoothed - micros)) / 4;
+            smoothed = (7 * smoothed + micros) / 8;
+        }
+    }
+
+    /**
+     * @return smoothed rtt plus four mean deviations, -1 without samples
+     */
+    public long timeoutMicros() {
+        return smoothed < 0 ? -1 : smoothed + 4 * deviation;
+    }
+
+    private static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exp - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, (exp - 1) * SUB_BUCKETS + sub);
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (exp - 2)) - 1;
+    }
+
+    /**
+     * @param fraction in [0, 1]
+     * @return the upper bound of the bucket holding that fraction of the
+     * samples, 0 without samples
+     */
+    public long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(max, upperBound(i));
+            }
+        }
+        return max;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public RttStats stats(BasicAddress peer) {
+        return new RttStats(peer, count, count == 0 ? 0 : min, count == 0 ? 0 : sum / count,
+                percentile(0.5), percentile(0.99), max, last);
+    }
+}
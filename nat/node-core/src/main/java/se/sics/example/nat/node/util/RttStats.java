@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+import se.sics.p2ptoolbox.util.network.impl.BasicAddress;
+
+/**
+ * Immutable summary of a {@link RttHistogram}, times in microseconds.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class RttStats {
+
+    public final BasicAddress peer;
+    public final long samples;
+    public final long min;
+    public final long mean;
+    public final long p50;
+    public final long p99;
+    public final long max;
+    public final long last;
+
+    public RttStats(BasicAddress peer, long samples, long min, long mean, long p50, long p99, long max, long last) {
+        this.peer = peer;
+        this.samples = samples;
+        this.min = min;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.max = max;
+        this.last = last;
+    }
+
+    @Override
+    public String toString() {
+        return peer + " n:" + samples + " min:" + min + "us p50:" + p50 + "us p99:" + p99 + "us max:" + max + "us";
+    }
+}
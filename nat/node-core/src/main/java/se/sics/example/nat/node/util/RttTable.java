@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import se.sics.p2ptoolbox.util.network.impl.BasicAddress;
+
+/**
+ * {@link RttHistogram}s of the peers most recently heard from, at most
+ * capacity of them.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class RttTable {
+
+    private final LinkedHashMap<BasicAddress, RttHistogram> peers;
+
+    public RttTable(final int capacity) {
+        this.peers = new LinkedHashMap<BasicAddress, RttHistogram>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BasicAddress, RttHistogram> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public void record(BasicAddress peer, long micros) {
+        RttHistogram histogram = peers.get(peer);
+        if (histogram == null) {
+            histogram = new RttHistogram();
+            peers.put(peer, histogram);
+        }
+        histogram.record(micros);
+    }
+
+    /**
+     * @return null if no rtt of the peer is known
+     */
+    public RttHistogram get(BasicAddress peer) {
+        return peers.get(peer);
+    }
+
+    /**
+     * @param limit at most this many, 0 for all
+     * @return the peers by increasing median rtt
+     */
+    public List<RttStats> fastest(int limit) {
+        List<RttStats> stats = new ArrayList<>(peers.size());
+        for (Map.Entry<BasicAddress, RttHistogram> peer : peers.entrySet()) {
+            stats.add(peer.getValue().stats(peer.getKey()));
+        }
+        Collections.sort(stats, new Comparator<RttStats>() {
+            @Override
+            public int compare(RttStats o1, RttStats o2) {
+                return Long.compare(o1.p50, o2.p50);
+            }
+        });
+        return limit > 0 && limit < stats.size() ? new ArrayList<>(stats.subList(0, limit)) : stats;
+    }
+
+    public int size() {
+        return peers.size();
+    }
+}
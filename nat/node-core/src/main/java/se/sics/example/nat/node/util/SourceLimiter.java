@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+import java.util.Arrays;
+import se.sics.p2ptoolbox.util.network.impl.BasicAddress;
+
+/**
+ * Token bucket per source in a fixed amount of memory: a sketch of
+ * {@code depth} rows of {@code width} buckets, each source hashing to one
+ * bucket per row. A source may go on while any of its buckets holds a token
+ * and then takes one from all of them, so a flooding source empties its own
+ * buckets, and a quiet one is only held back if every one of its buckets is
+ * shared with a flood.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class SourceLimiter {
+
+    private final int width;
+    private final int depth;
+    private final int mask;
+    private final double perMs;
+    private final double burst;
+    private final double[] tokens;
+    private final long[] refilledAt;
+    private final int[] cells;
+    private long limited = 0;
+
+    /**
+     * @param width buckets per row, rounded up to a power of two
+     * @param rate tokens per second of each bucket
+     * @param burst most tokens held, buckets start full
+     */
+    public SourceLimiter(int width, int depth, double rate, double burst, long now) {
+        if (width <= 0 || depth <= 0 || rate <= 0 || burst < 1) {
+            throw new RuntimeException("bad source limiter width:" + width + " depth:" + depth
+                    + " rate:" + rate + " burst:" + burst);
+        }
+        int rowSize = Integer.highestOneBit(width);
+        if (rowSize < width) {
+            rowSize = rowSize << 1;
+        }
+        this.width = rowSize;
+        this.depth = depth;
+        this.mask = rowSize - 1;
+        this.perMs = rate / 1000;
+        this.burst = burst;
+        this.tokens = new double[rowSize * depth];
+        this.refilledAt = new long[rowSize * depth];
+        this.cells = new int[depth];
+        Arrays.fill(tokens, burst);
+        Arrays.fill(refilledAt, now);
+    }
+
+    public boolean tryTake(BasicAddress source, long now) {
+        int hash = source.hashCode();
+        double most = 0;
+        for (int row = 0; row < depth; row++) {
+            int cell = row * width + (mix(hash, row) & mask);
+            cells[row] = cell;
+            if (now > refilledAt[cell]) {
+                tokens[cell] = Math.min(burst, tokens[cell] + (now - refilledAt[cell]) * perMs);
+                refilledAt[cell] = now;
+            }
+            most = Math.max(most, tokens[cell]);
+        }
+        if (most < 1) {
+            limited++;
+            return false;
+        }
+        for (int row = 0; row < depth; row++) {
+            tokens[cells[row]] = Math.max(0, tokens[cells[row]] - 1);
+        }
+        return true;
+    }
+
+    /**
+     * @return takes refused so far
+     */
+    public long limited() {
+        return limited;
+    }
+
+    private static int mix(int hash, int row) {
+        int h = hash * 0x9E3779B9 + row * 0x7F4A7C15;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+}
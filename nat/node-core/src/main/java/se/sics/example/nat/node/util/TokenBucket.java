@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+/**
+ * Token bucket refilled at a fixed rate up to a burst, on a clock in ms the
+ * caller passes in.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class TokenBucket {
+
+    private final double perMs;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * @param rate tokens per second
+     * @param burst most tokens held, the bucket starts full
+     */
+    public TokenBucket(double rate, double burst, long now) {
+        if (rate <= 0 || burst < 1) {
+            throw new RuntimeException("bad token bucket rate:" + rate + " burst:" + burst);
+        }
+        this.perMs = rate / 1000;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = now;
+    }
+
+    public boolean tryTake(long now) {
+        refill(now);
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    public double tokens(long now) {
+        refill(now);
+        return tokens;
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * perMs);
+            refilledAt = now;
+        }
+    }
+}
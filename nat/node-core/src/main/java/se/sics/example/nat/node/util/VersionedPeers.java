@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.example.nat.node.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import se.sics.p2ptoolbox.util.network.impl.BasicAddress;
+import se.sics.p2ptoolbox.util.network.impl.DecoratedAddress;
+
+/**
+ * Versions of a {@link PeerTable} state: every peer added or removed is a new
+ * version. Full views are immutable snapshots, built once per version on
+ * demand and shared by all the requests for that version. The last
+ * {@code history} changes are kept, so a poller that knows an earlier version
+ * can be sent only what changed since.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class VersionedPeers implements PeerTable.Listener {
+
+    private final DecoratedAddress[] changes;
+    private final boolean[] additions;
+    private long version = 0;
+
+    private List<DecoratedAddress> snapshot = Collections.emptyList();
+    private long snapshotVersion = 0;
+
+    public VersionedPeers(int history) {
+        if (history <= 0) {
+            throw new RuntimeException("bad history:" + history);
+        }
+        this.changes = new DecoratedAddress[history];
+        this.additions = new boolean[history];
+    }
+
+    @Override
+    public void added(DecoratedAddress peer) {
+        record(peer, true);
+    }
+
+    @Override
+    public void removed(DecoratedAddress peer) {
+        record(peer, false);
+    }
+
+    private void record(DecoratedAddress peer, boolean added) {
+        version++;
+        int at = (int) (version % changes.length);
+        changes[at] = peer;
+        additions[at] = added;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @param peers the table this listens to
+     * @param state the state this listens to
+     */
+    public List<DecoratedAddress> snapshot(PeerTable peers, byte state) {
+        if (snapshotVersion != version) {
+            snapshot = Collections.unmodifiableList(peers.peers(state));
+            snapshotVersion = version;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the peers added and removed after version since, null if the
+     * changes since are no longer kept or since is not a version of this view
+     */
+    public Delta delta(long since) {
+        if (since < 0 || since > version || version - since > changes.length) {
+            return null;
+        }
+        //first and last change of each peer, a peer both added and removed since cancels out
+        Map<BasicAddress, DecoratedAddress> added = new LinkedHashMap<>();
+        Map<BasicAddress, DecoratedAddress> removed = new LinkedHashMap<>();
+        Map<BasicAddress, Boolean> firstAdded = new LinkedHashMap<>();
+        for (long v = since + 1; v <= version; v++) {
+            int at = (int) (v % changes.length);
+            DecoratedAddress peer = changes[at];
+            BasicAddress base = peer.getBase();
+            if (!firstAdded.containsKey(base)) {
+                firstAdded.put(base, additions[at]);
+            }
+            if (additions[at]) {
+                removed.remove(base);
+                added.put(base, peer);
+            } else {
+                added.remove(base);
+                if (!firstAdded.get(base)) {
+                    removed.put(base, peer);
+                }
+            }
+        }
+        return new Delta(since, version, new ArrayList<>(added.values()), new ArrayList<>(removed.values()));
+    }
+
+    public static class Delta {
+
+        public final long since;
+        public final long version;
+        public final List<DecoratedAddress> added;
+        public final List<DecoratedAddress> removed;
+
+        public Delta(long since, long version, List<DecoratedAddress> added, List<DecoratedAddress> removed) {
+            this.since = since;
+            this.version = version;
+            this.added = Collections.unmodifiableList(added);
+            this.removed = Collections.unmodifiableList(removed);
+        }
+    }
+}
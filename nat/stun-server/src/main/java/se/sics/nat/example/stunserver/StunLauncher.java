@@ -26,6 +26,7 @@ import se.sics.kompics.Init;
 import se.sics.kompics.Kompics;
 import se.sics.kompics.timer.Timer;
 import se.sics.kompics.timer.java.JavaTimer;
+import se.sics.ktoolbox.examples.scheduler.SchedulerConfig;
 import se.sics.ktoolbox.ipsolver.hooks.IpSolverHookFactory;
 import se.sics.ktoolbox.overlaymngr.OMngrSerializerSetup;
 import se.sics.nat.hooks.BaseHooks;
@@ -98,7 +99,9 @@ public class StunLauncher extends ComponentDefinition {
         if (Kompics.isOn()) {
             Kompics.shutdown();
         }
-        Kompics.createAndStart(StunLauncher.class, Runtime.getRuntime().availableProcessors(), 20); // Yes 20 is totally arbitrary
+        SchedulerConfig scheduling = new SchedulerConfig(ConfigFactory.load());
+        scheduling.install();
+        Kompics.createAndStart(StunLauncher.class, scheduling.workers, scheduling.throughput);
     }
 
     public static void stop() {
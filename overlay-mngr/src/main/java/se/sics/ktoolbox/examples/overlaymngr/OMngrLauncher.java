@@ -51,6 +51,7 @@ import se.sics.ktoolbox.cc.common.config.CaracalClientConfig;
 import se.sics.ktoolbox.cc.common.op.CCSimpleReady;
 import se.sics.ktoolbox.cc.heartbeat.CCHeartbeatComp;
 import se.sics.ktoolbox.cc.heartbeat.CCHeartbeatPort;
+import se.sics.ktoolbox.examples.scheduler.SchedulerConfig;
 import se.sics.ktoolbox.overlaymngr.OverlayMngrComp;
 import se.sics.ktoolbox.overlaymngr.OverlayMngrComp.OverlayMngrInit;
 import se.sics.nat.NatLauncherProxy;
@@ -277,7 +278,9 @@ public class OMngrLauncher extends ComponentDefinition {
         if (Kompics.isOn()) {
             Kompics.shutdown();
         }
-        Kompics.createAndStart(OMngrLauncher.class, Runtime.getRuntime().availableProcessors(), 20); // Yes 20 is totally arbitrary
+        SchedulerConfig scheduling = new SchedulerConfig(ConfigFactory.load());
+        scheduling.install();
+        Kompics.createAndStart(OMngrLauncher.class, scheduling.workers, scheduling.throughput);
         try {
             Kompics.waitForTermination();
         } catch (InterruptedException ex) {
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.scheduler;
+
+import com.typesafe.config.Config;
+import se.sics.kompics.Kompics;
+import se.sics.kompics.Scheduler;
+
+/**
+ * The kompics.scheduler section of the config, see reference.conf. Launchers
+ * call {@link #install()} before {@code Kompics.createAndStart} with
+ * {@link #workers} and {@link #throughput}.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class SchedulerConfig {
+
+    public static enum Mode {
+
+        DEFAULT, WORKSTEALING
+    }
+
+    public final Mode mode;
+    public final int workers;
+    public final int throughput;
+    public final int minThroughput;
+    public final int maxThroughput;
+    public final long slice;
+    public final int adjustEvery;
+
+    public SchedulerConfig(Config config) {
+        try {
+            mode = Mode.valueOf(config.getString("kompics.scheduler.mode").toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new RuntimeException("bad scheduler mode:" + config.getString("kompics.scheduler.mode")
+                    + " expected default or workstealing");
+        }
+        int configWorkers = config.getInt("kompics.scheduler.workers");
+        workers = (configWorkers > 0 ? configWorkers : Runtime.getRuntime().availableProcessors());
+        throughput = config.getInt("kompics.scheduler.throughput");
+        minThroughput = config.getInt("kompics.scheduler.minThroughput");
+        maxThroughput = config.getInt("kompics.scheduler.maxThroughput");
+        slice = config.getLong("kompics.scheduler.slice");
+        adjustEvery = config.getInt("kompics.scheduler.adjustEvery");
+    }
+
+    /**
+     * @return null in default mode, kompics then creates its own scheduler
+     */
+    public Scheduler scheduler(int workers) {
+        switch (mode) {
+            case WORKSTEALING:
+                return new WorkStealingScheduler(workers, minThroughput, maxThroughput, slice, adjustEvery);
+            default:
+                return null;
+        }
+    }
+
+    public void install() {
+        install(workers);
+    }
+
+    public void install(int workers) {
+        Scheduler scheduler = scheduler(workers);
+        if (scheduler != null) {
+            Kompics.setScheduler(scheduler);
+        }
+    }
+}
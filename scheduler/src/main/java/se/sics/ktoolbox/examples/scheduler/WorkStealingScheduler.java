@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2009 Swedish Institute of Computer Science (SICS) Copyright (C)
+ * 2009 Royal Institute of Technology (KTH)
+ *
+ * ToolsExamples is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package se.sics.ktoolbox.examples.scheduler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.sics.kompics.Component;
+import se.sics.kompics.Kompics;
+import se.sics.kompics.Scheduler;
+
+/**
+ * Scheduler on a work-stealing pool. A component made ready from a worker is
+ * pushed on that worker's own deque and idle workers steal from the others,
+ * so there is no single shared queue to contend on.
+ * <p>
+ * The quantum, the events a component executes each time it is scheduled, is
+ * adapted at runtime between a min and a max. Every adjustEvery runs a worker
+ * looks at the mean duration of its runs and at the pool queue depth. With
+ * more ready components than workers the quantum is scaled so that a run
+ * takes about one slice, so slow handlers cannot starve the waiting
+ * components. With a shallow queue nobody is waiting and the quantum doubles,
+ * so bursts on a few components are not cut into many reschedules.
+ * The kompics quantum is global, so is the adapted value.
+ *
+ * @author Alex Ormenisan <aaor@kth.se>
+ */
+public class WorkStealingScheduler extends Scheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorkStealingScheduler.class);
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int minThroughput;
+    private final int maxThroughput;
+    private final long sliceNanos;
+    private final int adjustEvery;
+    private final ThreadLocal<RunWindow> windows = new ThreadLocal<RunWindow>() {
+        @Override
+        protected RunWindow initialValue() {
+            return new RunWindow();
+        }
+    };
+
+    public WorkStealingScheduler(int workers, int minThroughput, int maxThroughput, long sliceMicros, int adjustEvery) {
+        if (minThroughput < 1 || maxThroughput < minThroughput) {
+            throw new RuntimeException("bad throughput bounds min:" + minThroughput + " max:" + maxThroughput);
+        }
+        this.pool = new ForkJoinPool(workers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.parallelism = workers;
+        this.minThroughput = minThroughput;
+        this.maxThroughput = maxThroughput;
+        this.sliceNanos = TimeUnit.MICROSECONDS.toNanos(sliceMicros);
+        this.adjustEvery = adjustEvery;
+    }
+
+    @Override
+    public void schedule(Component c, int wid) {
+        Run run = new Run(c);
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+            ForkJoinTask.adapt(run).fork();
+        } else {
+            pool.execute(run);
+        }
+    }
+
+    @Override
+    public void proceed() {
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void asyncShutdown() {
+        pool.shutdown();
+    }
+
+    public int throughput() {
+        return Kompics.maxNumOfExecutedEvents.get();
+    }
+
+    private void adjust(RunWindow window) {
+        long meanRun = window.nanos / window.runs;
+        long depth = pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        int current = Kompics.maxNumOfExecutedEvents.get();
+        long next;
+        if (depth <= parallelism) {
+            next = 2L * current;
+        } else {
+            long scaled = meanRun == 0 ? maxThroughput : current * sliceNanos / meanRun;
+            next = (current + scaled) / 2;
+        }
+        int bounded = (int) Math.max(minThroughput, Math.min(maxThroughput, next));
+        if (bounded != current && Kompics.maxNumOfExecutedEvents.compareAndSet(current, bounded)) {
+            LOG.debug("throughput:{} mean run:{}ns queued:{}", new Object[]{bounded, meanRun, depth});
+        }
+    }
+
+    private class Run implements Runnable {
+
+        private final Component component;
+
+        Run(Component component) {
+            this.component = component;
+        }
+
+        @Override
+        public void run() {
+            int wid = ((ForkJoinWorkerThread) Thread.currentThread()).getPoolIndex();
+            long start = System.nanoTime();
+            try {
+                executeComponent(component, wid);
+            } catch (Throwable t) {
+                LOG.error("worker:{} component execution failed", wid, t);
+            }
+            RunWindow window = windows.get();
+            window.nanos += System.nanoTime() - start;
+            window.runs++;
+            if (window.runs >= adjustEvery) {
+                adjust(window);
+                window.nanos = 0;
+                window.runs = 0;
+            }
+        }
+    }
+
+    /**
+     * Runs of one worker since its last adjustment.
+     */
+    private static class RunWindow {
+
+        long nanos = 0;
+        int runs = 0;
+    }
+}